@@ -1,6 +1,7 @@
 package de.neozo.jblockchain.client;
 
 
+import de.neozo.jblockchain.common.SignatureScheme;
 import de.neozo.jblockchain.common.Signatures;
 import de.neozo.jblockchain.common.domain.Address;
 import de.neozo.jblockchain.common.domain.Transaction;
@@ -35,6 +36,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  * - Generate Private/Public-Key
  * - Publish a new Address
  * - Publish a new Transaction
+ * <p>
+ * Keys are RSA unless another signature scheme is chosen, e.g. "--scheme Ed25519".
+ * The same scheme has to be given for all three functions.
  */
 @SpringBootApplication
 public class BlockchainClient implements CommandLineRunner {
@@ -66,8 +70,9 @@ public class BlockchainClient implements CommandLineRunner {
     }
 
     private void executeCommand(CommandLine line) throws Exception {
+        var scheme = getScheme(line);
         if (line.hasOption("keypair")) {
-            generateKeyPair();
+            generateKeyPair(scheme);
         } else if (line.hasOption("address")) {
             var node = line.getOptionValue("node");
             var name = line.getOptionValue("name");
@@ -75,7 +80,7 @@ public class BlockchainClient implements CommandLineRunner {
             if (node == null || name == null || publickey == null) {
                 throw new ParseException("node, name and publickey is required");
             }
-            publishAddress(new URL(node), Paths.get(publickey), name);
+            publishAddress(new URL(node), Paths.get(publickey), name, scheme);
 
         } else if (line.hasOption("transaction")) {
             var node = line.getOptionValue("node");
@@ -85,7 +90,15 @@ public class BlockchainClient implements CommandLineRunner {
             if (node == null || message == null || sender == null || privatekey == null) {
                 throw new ParseException("node, message, sender and privatekey is required");
             }
-            publishTransaction(new URL(node), Paths.get(privatekey), message, Base64.getDecoder().decode(sender));
+            publishTransaction(new URL(node), Paths.get(privatekey), message, Base64.getDecoder().decode(sender), scheme);
+        }
+    }
+
+    private SignatureScheme getScheme(CommandLine line) throws ParseException {
+        try {
+            return Signatures.forName(line.getOptionValue("scheme"));
+        } catch (IllegalArgumentException e) {
+            throw new ParseException(e.getMessage());
         }
     }
 
@@ -134,24 +147,30 @@ public class BlockchainClient implements CommandLineRunner {
                 .argName("address hash (Base64)")
                 .desc("needed for transaction publishing")
                 .build());
+        options.addOption(Option.builder("e")
+                .longOpt("scheme")
+                .hasArg()
+                .argName("RSA or Ed25519")
+                .desc("signature scheme of the keys, defaults to RSA")
+                .build());
 
         return options;
     }
 
-    private void generateKeyPair() throws NoSuchProviderException, NoSuchAlgorithmException, IOException {
-        var keyPair = Signatures.generateKeyPair();
+    private void generateKeyPair(SignatureScheme scheme) throws NoSuchProviderException, NoSuchAlgorithmException, IOException {
+        var keyPair = scheme.generateKeyPair();
         Files.write(Paths.get("key.priv"), keyPair.getPrivate().getEncoded());
         Files.write(Paths.get("key.pub"), keyPair.getPublic().getEncoded());
     }
 
-    private void publishAddress(URL node, Path publicKey, String name) throws IOException, URISyntaxException {
-        var address = new Address(name, Files.readAllBytes(publicKey));
+    private void publishAddress(URL node, Path publicKey, String name, SignatureScheme scheme) throws IOException, URISyntaxException {
+        var address = new Address(name, Files.readAllBytes(publicKey), scheme.getName());
         restTemplate.put(new URL(node, "address?publish=true").toURI(), address);
         System.out.println("Hash of new address: " + Base64.getEncoder().encodeToString(address.getHash()));
     }
 
-    private void publishTransaction(URL node, Path privateKey, String text, byte[] senderHash) throws IOException, URISyntaxException, InvalidKeySpecException, NoSuchAlgorithmException, SignatureException, NoSuchProviderException, InvalidKeyException {
-        var signature = Signatures.sign(text.getBytes(), Files.readAllBytes(privateKey));
+    private void publishTransaction(URL node, Path privateKey, String text, byte[] senderHash, SignatureScheme scheme) throws IOException, URISyntaxException, InvalidKeySpecException, NoSuchAlgorithmException, SignatureException, NoSuchProviderException, InvalidKeyException {
+        var signature = scheme.sign(text.getBytes(), scheme.toPrivateKey(Files.readAllBytes(privateKey)));
         var transaction = new Transaction(
                 text.getBytes(UTF_8),
                 senderHash,
@@ -1,5 +1,6 @@
 package de.neozo.jblockchain.client;
 
+import de.neozo.jblockchain.common.BinaryHttpMessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -8,6 +9,8 @@ import org.springframework.web.client.RestTemplate;
 class Config {
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        var restTemplate = new RestTemplate();
+        restTemplate.getMessageConverters().add(0, new BinaryHttpMessageConverter());
+        return restTemplate;
     }
 }
@@ -0,0 +1,224 @@
+package de.neozo.jblockchain.common;
+
+import de.neozo.jblockchain.common.domain.Address;
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.BlockHeader;
+import de.neozo.jblockchain.common.domain.Transaction;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact binary encoding of whole Blocks and Transactions for storage and transfer.
+ * All numbers are big-endian. Hashes and merkle roots are not stored, they are recalculated when decoding.
+ * <p>
+ * Block, 60 bytes followed by its Transactions:
+ * <pre>
+ * offset  length  field
+ *      0       4  version
+ *      4      32  previousHash, all zero for the first Block in chain
+ *     36       4  difficulty
+ *     40       8  timestamp
+ *     48       8  nonce
+ *     56       4  number of Transactions
+ * </pre>
+ * Block header alone, always 88 bytes, the hash is recalculated when decoding:
+ * <pre>
+ * offset  length  field
+ *      0       4  version
+ *      4      32  previousHash, all zero for the first Block in chain
+ *     36      32  merkleRoot
+ *     68       4  difficulty
+ *     72       8  timestamp
+ *     80       8  nonce
+ * </pre>
+ * Transaction, the layout of HeaderEncoder.writeTransaction with the version of the Transaction, which may be the legacy one.
+ * <p>
+ * Address, the name, public key and name of the signature scheme, each as 4 bytes length followed by the content.
+ * Strings are UTF-8 encoded.
+ */
+public final class BinaryCodec {
+
+    public static final int BLOCK_HEADER_LENGTH = 60;
+
+    public static final int HEADER_ONLY_LENGTH = 88;
+
+    private static final byte[] NO_HASH = new byte[Hashes.LENGTH];
+
+    public static int getLength(Block block) {
+        return BLOCK_HEADER_LENGTH + block.getTransactions().mapToInt(BinaryCodec::getLength).sum();
+    }
+
+    public static int getLength(BlockHeader header) {
+        return HEADER_ONLY_LENGTH;
+    }
+
+    public static int getLength(Transaction transaction) {
+        return HeaderEncoder.getTransactionLength(transaction.getPayload(), transaction.getSignature());
+    }
+
+    public static int getLength(Address address) {
+        return 3 * Integer.BYTES + address.getName().getBytes(UTF_8).length + address.getPublicKey().length
+                + address.getSignatureScheme().getBytes(UTF_8).length;
+    }
+
+    public static byte[] encode(Block block) {
+        var buffer = ByteBuffer.allocate(getLength(block));
+        write(buffer, block);
+        return buffer.array();
+    }
+
+    public static byte[] encode(Transaction transaction) {
+        var buffer = ByteBuffer.allocate(getLength(transaction));
+        write(buffer, transaction);
+        return buffer.array();
+    }
+
+    /**
+     * @param target buffer with at least getLength(block) remaining bytes
+     */
+    public static void write(ByteBuffer target, Block block) {
+        target.putInt(block.getVersion())
+                .put(block.getPreviousHash() == null ? NO_HASH : block.getPreviousHash())
+                .putInt(block.getDifficulty())
+                .putLong(block.getTimestamp())
+                .putLong(block.getNonce())
+                .putInt((int) block.getTransactions().count());
+        block.getTransactions().forEach(x -> write(target, x));
+    }
+
+    /**
+     * @param target buffer with at least HEADER_ONLY_LENGTH remaining bytes
+     */
+    public static void write(ByteBuffer target, BlockHeader header) {
+        target.putInt(header.version())
+                .put(header.previousHash() == null ? NO_HASH : header.previousHash())
+                .put(header.merkleRoot() == null ? NO_HASH : header.merkleRoot())
+                .putInt(header.difficulty())
+                .putLong(header.timestamp())
+                .putLong(header.nonce());
+    }
+
+    /**
+     * @param target buffer with at least getLength(transaction) remaining bytes
+     */
+    public static void write(ByteBuffer target, Transaction transaction) {
+        target.putInt(transaction.getVersion());
+        HeaderEncoder.writeTransactionFields(target, transaction.getPayload(), transaction.getSender(), transaction.getSignature(), transaction.getTimestamp());
+    }
+
+    /**
+     * @param target buffer with at least getLength(address) remaining bytes
+     */
+    public static void write(ByteBuffer target, Address address) {
+        writeBytes(target, address.getName().getBytes(UTF_8));
+        writeBytes(target, address.getPublicKey());
+        writeBytes(target, address.getSignatureScheme().getBytes(UTF_8));
+    }
+
+    public static Block decodeBlock(byte[] data) {
+        return readBlock(ByteBuffer.wrap(data));
+    }
+
+    public static Transaction decodeTransaction(byte[] data) {
+        return readTransaction(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Read a Block, advancing the position of source behind it
+     *
+     * @throws IllegalArgumentException if source does not contain a complete Block
+     */
+    public static Block readBlock(ByteBuffer source) {
+        require(source, BLOCK_HEADER_LENGTH);
+        var version = source.getInt();
+        var previousHash = readBytes(source, Hashes.LENGTH);
+        var difficulty = source.getInt();
+        var timestamp = source.getLong();
+        var nonce = source.getLong();
+        var count = source.getInt();
+        if (count < 0) throw new IllegalArgumentException("Invalid number of transactions " + count);
+
+        var transactions = new ArrayList<Transaction>(Math.min(count, source.remaining() / HeaderEncoder.TRANSACTION_HEADER_LENGTH));
+        for (var i = 0; i < count; i++) {
+            transactions.add(readTransaction(source));
+        }
+        return new Block(version, Arrays.equals(previousHash, NO_HASH) ? null : previousHash, transactions, difficulty, nonce, timestamp);
+    }
+
+    /**
+     * Read a Block header, advancing the position of source behind it
+     *
+     * @throws IllegalArgumentException if source does not contain a complete header
+     */
+    public static BlockHeader readBlockHeader(ByteBuffer source) {
+        require(source, HEADER_ONLY_LENGTH);
+        var version = source.getInt();
+        var previousHash = readBytes(source, Hashes.LENGTH);
+        var merkleRoot = readBytes(source, Hashes.LENGTH);
+        var difficulty = source.getInt();
+        var timestamp = source.getLong();
+        var nonce = source.getLong();
+        if (Arrays.equals(previousHash, NO_HASH)) previousHash = null;
+
+        var hash = HeaderEncoder.hashBlockHeader(version, previousHash, merkleRoot, difficulty, timestamp, nonce);
+        return new BlockHeader(version, hash, previousHash, merkleRoot, difficulty, timestamp, nonce);
+    }
+
+    /**
+     * Read a Transaction, advancing the position of source behind it
+     *
+     * @throws IllegalArgumentException if source does not contain a complete Transaction
+     */
+    public static Transaction readTransaction(ByteBuffer source) {
+        require(source, HeaderEncoder.TRANSACTION_HEADER_LENGTH);
+        var version = source.getInt();
+        var sender = readBytes(source, Hashes.LENGTH);
+        var timestamp = source.getLong();
+        var payloadLength = source.getInt();
+        var signatureLength = source.getInt();
+        if (payloadLength < 0 || signatureLength < 0) throw new IllegalArgumentException("Invalid transaction length");
+
+        require(source, (long) payloadLength + signatureLength);
+        var payload = readBytes(source, payloadLength);
+        var signature = readBytes(source, signatureLength);
+        return new Transaction(version, payload, sender, signature, timestamp);
+    }
+
+    /**
+     * Read an Address, advancing the position of source behind it
+     *
+     * @throws IllegalArgumentException if source does not contain a complete Address
+     */
+    public static Address readAddress(ByteBuffer source) {
+        var name = new String(readBytes(source), UTF_8);
+        var publicKey = readBytes(source);
+        var signatureScheme = new String(readBytes(source), UTF_8);
+        return new Address(name, publicKey, signatureScheme);
+    }
+
+    private static void writeBytes(ByteBuffer target, byte[] data) {
+        target.putInt(data.length).put(data);
+    }
+
+    private static byte[] readBytes(ByteBuffer source) {
+        require(source, Integer.BYTES);
+        var length = source.getInt();
+        if (length < 0) throw new IllegalArgumentException("Invalid length " + length);
+        require(source, length);
+        return readBytes(source, length);
+    }
+
+    private static byte[] readBytes(ByteBuffer source, int length) {
+        var result = new byte[length];
+        source.get(result);
+        return result;
+    }
+
+    private static void require(ByteBuffer source, long length) {
+        if (source.remaining() < length) throw new IllegalArgumentException("Unexpected end of data");
+    }
+}
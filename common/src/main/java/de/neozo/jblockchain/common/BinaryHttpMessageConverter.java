@@ -0,0 +1,215 @@
+package de.neozo.jblockchain.common;
+
+import de.neozo.jblockchain.common.domain.Address;
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.BlockHeader;
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Reads and writes Blocks, Block headers, Transactions and Addresses in the format of BinaryCodec, as alternative to JSON.
+ * <p>
+ * A single object is sent as its encoding. Arrays, collections and iterables are sent as a sequence of encodings,
+ * each preceded by its length as 4 bytes, until the end of the body.
+ * No element may be larger than maxElementSize, longer ones are rejected before anything is allocated for them.
+ * Nodes and the client prefer this media type, JSON stays the default for everyone not asking for it.
+ */
+public class BinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-jblockchain";
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    /**
+     * Size limit of a single encoded element in bytes, well above a Block with thousands of Transactions
+     */
+    public static final int DEFAULT_MAX_ELEMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final Set<Class<?>> DOMAIN_TYPES = Set.of(Block.class, BlockHeader.class, Transaction.class, Address.class);
+
+    /**
+     * Encodes Blocks, may return cached encodings as Blocks never change
+     */
+    private final Function<Block, byte[]> blockEncoder;
+
+    /**
+     * Largest accepted encoding of a single element in bytes
+     */
+    private final int maxElementSize;
+
+    public BinaryHttpMessageConverter() {
+        this(BinaryCodec::encode, DEFAULT_MAX_ELEMENT_SIZE);
+    }
+
+    /**
+     * @param blockEncoder   returns the encoding of a Block as BinaryCodec.encode does, the result is not modified
+     * @param maxElementSize largest accepted encoding of a single element in bytes
+     */
+    public BinaryHttpMessageConverter(Function<Block, byte[]> blockEncoder, int maxElementSize) {
+        super(MEDIA_TYPE);
+        if (maxElementSize <= 0 || maxElementSize == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid maximum element size " + maxElementSize);
+        }
+        this.blockEncoder = blockEncoder;
+        this.maxElementSize = maxElementSize;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return DOMAIN_TYPES.contains(clazz) || (clazz.isArray() && DOMAIN_TYPES.contains(clazz.getComponentType()));
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return getElementType(type) != null && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return getElementType(type != null ? type : clazz) != null && canWrite(mediaType);
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        // the raw class of a returned iterable tells nothing about its elements, canWrite(Type...) decides
+        return getSupportedMediaTypes();
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        var elementType = getElementType(type);
+        try {
+            if (DOMAIN_TYPES.contains(type)) {
+                // one byte more than allowed tells whether the body is too long
+                var data = inputMessage.getBody().readNBytes(maxElementSize + 1);
+                if (data.length > maxElementSize) throw new IllegalArgumentException("Element exceeds " + maxElementSize + " bytes");
+                return read(elementType, ByteBuffer.wrap(data));
+            }
+
+            var elements = new ArrayList<>();
+            readEach(inputMessage.getBody(), elementType, maxElementSize, elements::add);
+            if (type instanceof Class<?> arrayType) {
+                var array = Array.newInstance(arrayType.getComponentType(), elements.size());
+                for (var i = 0; i < elements.size(); i++) Array.set(array, i, elements.get(i));
+                return array;
+            }
+            return elements;
+        } catch (RuntimeException | EOFException e) {
+            throw new HttpMessageNotReadableException("Invalid binary " + elementType.getSimpleName(), e, inputMessage);
+        }
+    }
+
+    /**
+     * Decode a sequence of length-prefixed elements one at a time, without holding more than one of them in memory
+     *
+     * @param body        stream to read until its end
+     * @param elementType Block, BlockHeader, Transaction or Address class
+     * @param maxLength   largest accepted length of an element, checked before reading it
+     * @param action      called with every element, returning false stops reading
+     * @return number of elements accepted by action
+     * @throws EOFException             if the stream ends within an element
+     * @throws IllegalArgumentException if an element is malformed or longer than maxLength
+     */
+    public static <T> long readEach(InputStream body, Class<T> elementType, int maxLength, Predicate<? super T> action) throws IOException {
+        var input = new DataInputStream(new BufferedInputStream(body));
+        var count = 0L;
+        int first;
+        while ((first = input.read()) != -1) {
+            var length = first << 24 | input.readUnsignedByte() << 16 | input.readUnsignedShort();
+            if (length < 0 || length > maxLength) throw new IllegalArgumentException("Invalid element length " + length);
+
+            var data = new byte[length];
+            input.readFully(data);
+            if (!action.test(elementType.cast(read(elementType, ByteBuffer.wrap(data))))) break;
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        var body = outputMessage.getBody();
+        if (DOMAIN_TYPES.contains(object.getClass())) {
+            body.write(encode(object));
+            return;
+        }
+
+        var output = new DataOutputStream(body);
+        Iterable<?> elements = object.getClass().isArray() ? List.of((Object[]) object) : (Iterable<?>) object;
+        for (var element : elements) {
+            var data = encode(element);
+            output.writeInt(data.length);
+            output.write(data);
+        }
+        output.flush();
+    }
+
+    private static Object read(Class<?> elementType, ByteBuffer buffer) {
+        if (elementType == Block.class) return BinaryCodec.readBlock(buffer);
+        if (elementType == BlockHeader.class) return BinaryCodec.readBlockHeader(buffer);
+        if (elementType == Transaction.class) return BinaryCodec.readTransaction(buffer);
+        return BinaryCodec.readAddress(buffer);
+    }
+
+    private byte[] encode(Object object) {
+        if (object instanceof Block block) return blockEncoder.apply(block);
+        if (object instanceof Transaction transaction) return BinaryCodec.encode(transaction);
+        if (object instanceof BlockHeader header) {
+            var buffer = ByteBuffer.allocate(BinaryCodec.getLength(header));
+            BinaryCodec.write(buffer, header);
+            return buffer.array();
+        }
+
+        var address = (Address) object;
+        var buffer = ByteBuffer.allocate(BinaryCodec.getLength(address));
+        BinaryCodec.write(buffer, address);
+        return buffer.array();
+    }
+
+    /**
+     * Determine the domain type of a single object, an array or an iterable
+     *
+     * @return Block, BlockHeader, Transaction or Address class, null if the type is not supported
+     */
+    @Nullable
+    private static Class<?> getElementType(Type type) {
+        if (type instanceof Class<?> clazz) {
+            if (DOMAIN_TYPES.contains(clazz)) return clazz;
+            if (clazz.isArray() && DOMAIN_TYPES.contains(clazz.getComponentType())) return clazz.getComponentType();
+        } else if (type instanceof ParameterizedType parameterized
+                && (parameterized.getRawType() == Iterable.class
+                || parameterized.getRawType() == Collection.class
+                || parameterized.getRawType() == List.class)) {
+            var argument = parameterized.getActualTypeArguments()[0];
+            if (argument instanceof Class<?> clazz && DOMAIN_TYPES.contains(clazz)) return clazz;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,49 @@
+package de.neozo.jblockchain.common;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+import static de.neozo.jblockchain.common.HeaderEncoder.BLOCK_HEADER_LENGTH;
+import static de.neozo.jblockchain.common.HeaderEncoder.NONCE_OFFSET;
+
+/**
+ * Hashes Block headers which only differ in their nonce, as done while mining.
+ * The fixed part of the header (previousHash, merkleRoot, difficulty and timestamp) is digested once,
+ * every nonce continues from a copy of that state. Nonce and hash are written into reused buffers.
+ * <p>
+ * Produces the same hashes as Block.calculateHash() for Blocks of the current HeaderEncoder.VERSION.
+ * Instances are not thread-safe.
+ */
+public final class BlockHeaderHasher {
+
+    private final MessageDigest prefix;
+
+    private final byte[] header = new byte[BLOCK_HEADER_LENGTH];
+
+    private final byte[] hash = new byte[Hashes.LENGTH];
+
+    public BlockHeaderHasher(byte[] previousHash, byte[] merkleRoot, int difficulty, long timestamp) {
+        HeaderEncoder.writeBlockHeader(ByteBuffer.wrap(header), previousHash, merkleRoot, difficulty, timestamp, 0L);
+        prefix = Hashes.newDigest();
+        prefix.update(header, 0, NONCE_OFFSET);
+    }
+
+    /**
+     * Calculate the header hash for the given nonce
+     *
+     * @param nonce the nonce to try
+     * @return SHA256-hash as raw bytes, the array is overwritten by the next call
+     */
+    public byte[] hash(long nonce) {
+        try {
+            var digest = (MessageDigest) prefix.clone();
+            Bytes.write(nonce, header, NONCE_OFFSET);
+            digest.update(header, NONCE_OFFSET, Long.BYTES);
+            digest.digest(hash, 0, hash.length);
+            return hash;
+        } catch (CloneNotSupportedException | DigestException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
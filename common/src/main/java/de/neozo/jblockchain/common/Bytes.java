@@ -1,21 +1,46 @@
 package de.neozo.jblockchain.common;
 
+/**
+ * Big-endian encoding of numbers
+ */
 public final class Bytes {
     public static byte[] toByteArray(int value) {
         var result = new byte[Integer.BYTES];
-        for (var i = 3; i >= 0; i--) {
-            result[i] = (byte) (value & 0xffL);
-            value >>= Integer.BYTES;
-        }
+        write(value, result, 0);
         return result;
     }
 
     public static byte[] toByteArray(long value) {
         var result = new byte[Long.BYTES];
-        for (var i = 7; i >= 0; i--) {
-            result[i] = (byte) (value & 0xffL);
-            value >>= Long.BYTES;
-        }
+        write(value, result, 0);
         return result;
     }
+
+    /**
+     * Write the value into an existing array, using the same layout as toByteArray(int)
+     *
+     * @param value  the value to write
+     * @param target array to write into
+     * @param offset position of the first byte in target
+     */
+    public static void write(int value, byte[] target, int offset) {
+        for (var i = Integer.BYTES - 1; i >= 0; i--) {
+            target[offset + i] = (byte) (value & 0xff);
+            value >>= Byte.SIZE;
+        }
+    }
+
+    /**
+     * Write the value into an existing array, using the same layout as toByteArray(long)
+     *
+     * @param value  the value to write
+     * @param target array to write into
+     * @param offset position of the first byte in target
+     */
+    public static void write(long value, byte[] target, int offset) {
+        for (var i = Long.BYTES - 1; i >= 0; i--) {
+            target[offset + i] = (byte) (value & 0xffL);
+            value >>= Byte.SIZE;
+        }
+    }
 }
@@ -1,17 +1,112 @@
 package de.neozo.jblockchain.common;
 
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+/**
+ * SHA256-hashing with one reused MessageDigest per thread.
+ * None of the methods allocate a digest, the ones taking a target array don't allocate at all.
+ */
 public final class Hashes {
-    public static byte[] digest(byte[] first, byte[]... rest) {
+
+    /**
+     * Length of a SHA256-hash in bytes
+     */
+    public static final int LENGTH = 32;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(Hashes::newDigest);
+
+    /**
+     * Create a new SHA256 MessageDigest, for callers which need to keep or clone its state
+     *
+     * @return new MessageDigest instance
+     */
+    public static MessageDigest newDigest() {
         try {
-            var digest = MessageDigest.getInstance("SHA-256");
-            digest.update(first);
-            for (var bytes : rest) digest.update(bytes);
-            return digest.digest();
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
     }
+
+    public static byte[] digest(byte[] first, byte[]... rest) {
+        var digest = digest();
+        digest.update(first);
+        for (var bytes : rest) digest.update(bytes);
+        return digest.digest();
+    }
+
+    /**
+     * Hash a slice of an array
+     *
+     * @param data   array containing the data
+     * @param offset position of the first byte to hash
+     * @param length number of bytes to hash
+     * @return SHA256-hash as raw bytes
+     */
+    public static byte[] digest(byte[] data, int offset, int length) {
+        var digest = digest();
+        digest.update(data, offset, length);
+        return digest.digest();
+    }
+
+    /**
+     * Hash the remaining bytes of a buffer, the position of the buffer is moved to its limit
+     *
+     * @param data buffer containing the data
+     * @return SHA256-hash as raw bytes
+     */
+    public static byte[] digest(ByteBuffer data) {
+        var digest = digest();
+        digest.update(data);
+        return digest.digest();
+    }
+
+    /**
+     * Hash a slice of an array and write the hash into a caller-supplied array
+     *
+     * @param data         array containing the data
+     * @param offset       position of the first byte to hash
+     * @param length       number of bytes to hash
+     * @param target       array to write the hash into, needs LENGTH bytes of space
+     * @param targetOffset position of the first byte of the hash in target
+     */
+    public static void digest(byte[] data, int offset, int length, byte[] target, int targetOffset) {
+        var digest = digest();
+        digest.update(data, offset, length);
+        finish(digest, target, targetOffset);
+    }
+
+    /**
+     * Hash the remaining bytes of a buffer and write the hash into a caller-supplied array,
+     * the position of the buffer is moved to its limit
+     *
+     * @param data         buffer containing the data
+     * @param target       array to write the hash into, needs LENGTH bytes of space
+     * @param targetOffset position of the first byte of the hash in target
+     */
+    public static void digest(ByteBuffer data, byte[] target, int targetOffset) {
+        var digest = digest();
+        digest.update(data);
+        finish(digest, target, targetOffset);
+    }
+
+    /**
+     * The MessageDigest of the current thread, reset in case an earlier call failed halfway
+     */
+    private static MessageDigest digest() {
+        var digest = DIGEST.get();
+        digest.reset();
+        return digest;
+    }
+
+    private static void finish(MessageDigest digest, byte[] target, int targetOffset) {
+        try {
+            digest.digest(target, targetOffset, LENGTH);
+        } catch (DigestException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,168 @@
+package de.neozo.jblockchain.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Canonical binary encoding of Block headers and Transactions, which is what gets hashed.
+ * All numbers are big-endian.
+ * <p>
+ * Block header, version 2, always 88 bytes:
+ * <pre>
+ * offset  length  field
+ *      0       4  version
+ *      4      32  previousHash, all zero for the first Block in chain
+ *     36      32  merkleRoot
+ *     68       4  difficulty
+ *     72       8  timestamp
+ *     80       8  nonce
+ * </pre>
+ * Transaction, version 2, 52 bytes followed by payload and signature:
+ * <pre>
+ * offset  length  field
+ *      0       4  version
+ *      4      32  sender
+ *     36       8  timestamp
+ *     44       4  payload length n
+ *     48       4  signature length m
+ *     52       n  payload
+ * 52 + n       m  signature
+ * </pre>
+ * Version 1 is the original encoding, only kept to verify existing chains:
+ * the fields are concatenated without lengths in the order previousHash (left out for the first Block),
+ * merkleRoot, difficulty, timestamp, nonce respectively payload, sender, signature, timestamp,
+ * and the difficulty is shifted by 4 bits instead of 8 per byte.
+ * New Blocks and Transactions are created with the current version.
+ */
+public final class HeaderEncoder {
+
+    public static final int LEGACY_VERSION = 1;
+
+    public static final int VERSION = 2;
+
+    public static final int BLOCK_HEADER_LENGTH = 88;
+
+    /**
+     * Position of the nonce in a Block header, everything before stays the same while mining
+     */
+    public static final int NONCE_OFFSET = 80;
+
+    public static final int TRANSACTION_HEADER_LENGTH = 52;
+
+    private static final byte[] NO_HASH = new byte[Hashes.LENGTH];
+
+    /**
+     * Reused per thread, grown if a Transaction does not fit
+     */
+    private static final ThreadLocal<ByteBuffer> buffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+
+    /**
+     * Write a version 2 Block header
+     *
+     * @param target buffer with at least BLOCK_HEADER_LENGTH remaining bytes
+     */
+    public static void writeBlockHeader(ByteBuffer target, byte[] previousHash, byte[] merkleRoot, int difficulty, long timestamp, long nonce) {
+        target.putInt(VERSION)
+                .put(previousHash == null ? NO_HASH : checkLength(previousHash))
+                .put(checkLength(merkleRoot))
+                .putInt(difficulty)
+                .putLong(timestamp)
+                .putLong(nonce);
+    }
+
+    /**
+     * Write a version 2 Transaction
+     *
+     * @param target buffer with at least getTransactionLength(payload, signature) remaining bytes
+     */
+    public static void writeTransaction(ByteBuffer target, byte[] payload, byte[] sender, byte[] signature, long timestamp) {
+        target.putInt(VERSION);
+        writeTransactionFields(target, payload, sender, signature, timestamp);
+    }
+
+    /**
+     * Write the fields of a Transaction following its version
+     */
+    static void writeTransactionFields(ByteBuffer target, byte[] payload, byte[] sender, byte[] signature, long timestamp) {
+        target.put(checkLength(sender))
+                .putLong(timestamp)
+                .putInt(payload.length)
+                .putInt(signature.length)
+                .put(payload)
+                .put(signature);
+    }
+
+    public static int getTransactionLength(byte[] payload, byte[] signature) {
+        return TRANSACTION_HEADER_LENGTH + payload.length + signature.length;
+    }
+
+    /**
+     * Hash a Block header in the given version
+     *
+     * @return SHA256-hash as raw bytes
+     */
+    public static byte[] hashBlockHeader(int version, byte[] previousHash, byte[] merkleRoot, int difficulty, long timestamp, long nonce) {
+        return switch (version) {
+            case VERSION -> {
+                var header = buffer(BLOCK_HEADER_LENGTH);
+                writeBlockHeader(header, previousHash, merkleRoot, difficulty, timestamp, nonce);
+                yield Hashes.digest(header.flip());
+            }
+            case LEGACY_VERSION -> Hashes.digest(
+                    previousHash == null ? new byte[0] : previousHash,
+                    merkleRoot,
+                    toLegacyByteArray(difficulty),
+                    Bytes.toByteArray(timestamp),
+                    Bytes.toByteArray(nonce)
+            );
+            default -> throw new IllegalArgumentException("Unknown version " + version);
+        };
+    }
+
+    /**
+     * Hash a Transaction in the given version
+     *
+     * @return SHA256-hash as raw bytes
+     */
+    public static byte[] hashTransaction(int version, byte[] payload, byte[] sender, byte[] signature, long timestamp) {
+        return switch (version) {
+            case VERSION -> {
+                var transaction = buffer(getTransactionLength(payload, signature));
+                writeTransaction(transaction, payload, sender, signature, timestamp);
+                yield Hashes.digest(transaction.flip());
+            }
+            case LEGACY_VERSION -> Hashes.digest(
+                    payload,
+                    sender,
+                    signature,
+                    Bytes.toByteArray(timestamp)
+            );
+            default -> throw new IllegalArgumentException("Unknown version " + version);
+        };
+    }
+
+    private static ByteBuffer buffer(int length) {
+        var current = buffer.get();
+        if (current.capacity() < length) {
+            current = ByteBuffer.allocate(Math.max(length, current.capacity() * 2));
+            buffer.set(current);
+        }
+        return current.clear();
+    }
+
+    private static byte[] checkLength(byte[] hash) {
+        if (hash.length != Hashes.LENGTH) throw new IllegalArgumentException("Expected hash of " + Hashes.LENGTH + " bytes");
+        return hash;
+    }
+
+    /**
+     * The original int encoding, shifting by 4 bits per byte
+     */
+    private static byte[] toLegacyByteArray(int value) {
+        var result = new byte[Integer.BYTES];
+        for (var i = 3; i >= 0; i--) {
+            result[i] = (byte) (value & 0xffL);
+            value >>= Integer.BYTES;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package de.neozo.jblockchain.common;
+
+
+import java.security.*;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * SignatureScheme backed by the algorithms of the Java Cryptography Architecture.
+ * KeyFactory and Signature are not thread-safe, so every thread gets its own instances.
+ */
+public final class JcaSignatureScheme implements SignatureScheme {
+
+    private final String name;
+
+    private final String keyAlgorithm;
+
+    /**
+     * Key size in bits, 0 if the algorithm has a fixed size
+     */
+    private final int keySize;
+
+    private final ThreadLocal<KeyFactory> keyFactory;
+
+    private final ThreadLocal<Signature> signature;
+
+    public JcaSignatureScheme(String name, String keyAlgorithm, int keySize, String signatureAlgorithm) {
+        this.name = name;
+        this.keyAlgorithm = keyAlgorithm;
+        this.keySize = keySize;
+        this.keyFactory = ThreadLocal.withInitial(() -> {
+            try {
+                return KeyFactory.getInstance(keyAlgorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        this.signature = ThreadLocal.withInitial(() -> {
+            try {
+                return Signature.getInstance(signatureAlgorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public KeyPair generateKeyPair() throws NoSuchAlgorithmException {
+        var generator = KeyPairGenerator.getInstance(keyAlgorithm);
+        if (keySize > 0) generator.initialize(keySize, new SecureRandom());
+        return generator.generateKeyPair();
+    }
+
+    @Override
+    public PublicKey toPublicKey(byte[] publicKey) throws InvalidKeySpecException {
+        return keyFactory.get().generatePublic(new X509EncodedKeySpec(publicKey));
+    }
+
+    @Override
+    public PrivateKey toPrivateKey(byte[] privateKey) throws InvalidKeySpecException {
+        return keyFactory.get().generatePrivate(new PKCS8EncodedKeySpec(privateKey));
+    }
+
+    @Override
+    public byte[] sign(byte[] data, PrivateKey privateKey) throws InvalidKeyException, SignatureException {
+        var sig = signature.get();
+        sig.initSign(privateKey);
+        sig.update(data);
+        return sig.sign();
+    }
+
+    @Override
+    public boolean verify(byte[] data, byte[] signature, PublicKey publicKey) throws InvalidKeyException, SignatureException {
+        var sig = this.signature.get();
+        sig.initVerify(publicKey);
+        sig.update(data);
+        return sig.verify(signature);
+    }
+}
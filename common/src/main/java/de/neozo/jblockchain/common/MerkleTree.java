@@ -0,0 +1,202 @@
+package de.neozo.jblockchain.common;
+
+import de.neozo.jblockchain.common.domain.MerkleProof;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static de.neozo.jblockchain.common.Hashes.LENGTH;
+
+/**
+ * Hash tree over a list of leaf hashes, see https://en.wikipedia.org/wiki/Merkle_tree
+ * <p>
+ * Every level is stored as one flat array of 32 byte hashes, level 0 holds the leaves and the last level the root.
+ * A parent is the hash of its two children concatenated. If a level has an odd number of nodes,
+ * the last node is paired with itself. Large levels are hashed in parallel.
+ * A tree without leaves has a root of zeros, a tree with a single leaf has that leaf as root.
+ * <p>
+ * Leaves can be appended, replaced and removed from the end afterwards,
+ * which only rehashes the nodes on the way from the changed leaf to the root.
+ * Instances are not thread-safe.
+ */
+public final class MerkleTree {
+
+    /**
+     * Minimum number of parents on a level to hash it in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    /**
+     * Levels from leaves to root, arrays may be larger than the nodes they currently hold
+     */
+    private final List<byte[]> levels = new ArrayList<>();
+
+    /**
+     * Number of leaves
+     */
+    private int size;
+
+    public MerkleTree(List<byte[]> leaves) {
+        size = leaves.size();
+        var level = new byte[size * LENGTH];
+        for (var i = 0; i < size; i++) {
+            System.arraycopy(leaves.get(i), 0, level, i * LENGTH, LENGTH);
+        }
+        levels.add(level);
+        for (var count = size; count > 1; count = (count + 1) / 2) {
+            level = hashLevel(level, count);
+            levels.add(level);
+        }
+    }
+
+    /**
+     * @return SHA256-hash of the root as raw bytes
+     */
+    public byte[] getRoot() {
+        if (size == 0) return new byte[LENGTH];
+        return Arrays.copyOf(levels.get(getHeight() - 1), LENGTH);
+    }
+
+    /**
+     * @return number of leaves
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the position of a leaf
+     *
+     * @param leaf hash to look for
+     * @return index of the leaf, -1 if it is not part of this tree
+     */
+    public int indexOf(byte[] leaf) {
+        var leaves = levels.get(0);
+        for (var i = 0; i < size; i++) {
+            if (Arrays.equals(leaves, i * LENGTH, (i + 1) * LENGTH, leaf, 0, leaf.length)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Add a leaf at the end
+     *
+     * @param leaf hash to add
+     */
+    public void append(byte[] leaf) {
+        size++;
+        set(size - 1, leaf);
+    }
+
+    /**
+     * Replace a leaf
+     *
+     * @param index position of the leaf
+     * @param leaf  new hash for this position
+     */
+    public void set(int index, byte[] leaf) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+
+        ensureCapacity(0, size);
+        System.arraycopy(leaf, 0, levels.get(0), index * LENGTH, LENGTH);
+        rehashPath(index);
+    }
+
+    /**
+     * Remove the last leaf
+     */
+    public void removeLast() {
+        if (size == 0) throw new IndexOutOfBoundsException(0);
+
+        size--;
+        if (size > 0) rehashPath(size - 1);
+    }
+
+    /**
+     * Create an inclusion proof for a leaf, containing the sibling of every node on the way to the root
+     *
+     * @param index position of the leaf
+     * @return proof which can be verified against the root
+     */
+    public MerkleProof getProof(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+
+        var siblings = new ArrayList<byte[]>(getHeight() - 1);
+        var position = index;
+        var count = size;
+        for (var i = 0; i < getHeight() - 1; i++) {
+            var sibling = Math.min(position ^ 1, count - 1);
+            siblings.add(Arrays.copyOfRange(levels.get(i), sibling * LENGTH, (sibling + 1) * LENGTH));
+            position >>= 1;
+            count = (count + 1) / 2;
+        }
+        return new MerkleProof(
+                Arrays.copyOfRange(levels.get(0), index * LENGTH, (index + 1) * LENGTH),
+                index,
+                siblings,
+                getRoot()
+        );
+    }
+
+    /**
+     * @return number of levels in use, including leaves and root
+     */
+    private int getHeight() {
+        var height = 1;
+        for (var count = size; count > 1; count = (count + 1) / 2) height++;
+        return height;
+    }
+
+    /**
+     * Recalculate all parents of a leaf, assuming all other nodes are up to date
+     */
+    private void rehashPath(int index) {
+        var count = size;
+        for (var level = 0; count > 1; level++) {
+            var parents = (count + 1) / 2;
+            ensureCapacity(level + 1, parents);
+            index >>= 1;
+            hashPair(levels.get(level), count, index, levels.get(level + 1));
+            count = parents;
+        }
+    }
+
+    private void ensureCapacity(int level, int count) {
+        if (level == levels.size()) levels.add(new byte[0]);
+        var current = levels.get(level);
+        if (current.length < count * LENGTH) {
+            levels.set(level, Arrays.copyOf(current, Math.max(count, 2 * current.length / LENGTH) * LENGTH));
+        }
+    }
+
+    private static byte[] hashLevel(byte[] level, int count) {
+        var parents = (count + 1) / 2;
+        var result = new byte[parents * LENGTH];
+        var indexes = IntStream.range(0, parents);
+        if (parents >= PARALLEL_THRESHOLD) indexes = indexes.parallel();
+        indexes.forEach(i -> hashPair(level, count, i, result));
+        return result;
+    }
+
+    /**
+     * Hash the children of a parent, pairing the last child with itself if the level has an odd number of nodes
+     *
+     * @param level  the children's level
+     * @param count  number of nodes on the children's level
+     * @param parent position of the parent
+     * @param target the parent's level
+     */
+    private static void hashPair(byte[] level, int count, int parent, byte[] target) {
+        var left = 2 * parent;
+        if (left + 1 < count) {
+            Hashes.digest(level, left * LENGTH, 2 * LENGTH, target, parent * LENGTH);
+        } else {
+            var pair = new byte[2 * LENGTH];
+            System.arraycopy(level, left * LENGTH, pair, 0, LENGTH);
+            System.arraycopy(level, left * LENGTH, pair, LENGTH, LENGTH);
+            Hashes.digest(pair, 0, pair.length, target, parent * LENGTH);
+        }
+    }
+}
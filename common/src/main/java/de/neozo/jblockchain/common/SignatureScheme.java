@@ -0,0 +1,61 @@
+package de.neozo.jblockchain.common;
+
+
+import java.security.*;
+import java.security.spec.InvalidKeySpecException;
+
+/**
+ * Algorithms used to create keys, sign data and verify signatures.
+ * Every Address names the scheme its public key belongs to, see Signatures for the available schemes.
+ */
+public interface SignatureScheme {
+
+    /**
+     * Name identifying this scheme in an Address
+     *
+     * @return unique name
+     */
+    String getName();
+
+    /**
+     * Generate a random key pair.
+     *
+     * @return KeyPair containing private and public key
+     */
+    KeyPair generateKeyPair() throws NoSuchAlgorithmException;
+
+    /**
+     * Construct a PublicKey-object from raw bytes, as stored in an Address.
+     *
+     * @param publicKey X.509 encoded public key
+     * @return the parsed PublicKey
+     */
+    PublicKey toPublicKey(byte[] publicKey) throws InvalidKeySpecException;
+
+    /**
+     * Construct a PrivateKey-object from raw bytes, as written by the client.
+     *
+     * @param privateKey PKCS#8 encoded private key
+     * @return the parsed PrivateKey
+     */
+    PrivateKey toPrivateKey(byte[] privateKey) throws InvalidKeySpecException;
+
+    /**
+     * Sign given data with a private key
+     *
+     * @param data       raw data to sign
+     * @param privateKey to use for the signage process
+     * @return signature of data which can be verified with corresponding public key
+     */
+    byte[] sign(byte[] data, PrivateKey privateKey) throws InvalidKeyException, SignatureException;
+
+    /**
+     * Verify if the given signature is valid regarding the data and publicKey.
+     *
+     * @param data      raw data which was signed
+     * @param signature to proof the validity of the sender
+     * @param publicKey key to verify the data was signed by owner of corresponding private key
+     * @return true if the signature verification succeeds.
+     */
+    boolean verify(byte[] data, byte[] signature, PublicKey publicKey) throws InvalidKeyException, SignatureException;
+}
@@ -15,40 +15,53 @@ import java.security.*;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.security.spec.X509EncodedKeySpec;
 import java.time.Instant;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static java.time.temporal.ChronoUnit.YEARS;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static org.bouncycastle.asn1.x509.Extension.basicConstraints;
 
 public final class Signatures {
 
     /**
-     * The keyFactory defines which algorithms are used to generate the private/public keys.
+     * 2048 bit RSA keys with SHA1withRSA signatures, used by Addresses which don't name a scheme
      */
-    private static final KeyFactory keyFactory;
-
-    static {
-        try {
-            keyFactory = KeyFactory.getInstance("RSA");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+    public static final SignatureScheme RSA = new JcaSignatureScheme("RSA", "RSA", 2048, "SHA1withRSA");
+
+    /**
+     * Ed25519 keys and signatures, much faster to generate and sign and a lot smaller than RSA
+     */
+    public static final SignatureScheme ED25519 = new JcaSignatureScheme("Ed25519", "Ed25519", 0, "Ed25519");
+
+    private static final Map<String, SignatureScheme> schemes = Stream.of(RSA, ED25519)
+            .collect(toMap(x -> x.getName().toLowerCase(Locale.ROOT), identity()));
+
+    /**
+     * Look up a SignatureScheme by its name, ignoring case
+     *
+     * @param name name of the scheme, null for the default RSA scheme
+     * @return the matching SignatureScheme
+     * @throws IllegalArgumentException if no scheme has the given name
+     */
+    public static SignatureScheme forName(String name) {
+        if (name == null) return RSA;
+        var scheme = schemes.get(name.toLowerCase(Locale.ROOT));
+        if (scheme == null) throw new IllegalArgumentException("Unknown signature scheme " + name);
+        return scheme;
     }
 
     /**
-     * Generate a random key pair.
+     * Generate a random RSA key pair.
      *
      * @return KeyPair containing private and public key
      */
     public static KeyPair generateKeyPair() throws NoSuchAlgorithmException {
-        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
-        generator.initialize(2048, new SecureRandom());
-
-        return generator.generateKeyPair();
-
+        return RSA.generateKeyPair();
     }
 
     public static Certificate selfSign(KeyPair keyPair, X500Name dnName) throws OperatorCreationException, CertificateException, IOException {
@@ -77,7 +90,7 @@ public final class Signatures {
     }
 
     /**
-     * Verify if the given signature is valid regarding the data and publicKey.
+     * Verify if the given signature is valid regarding the data and RSA publicKey.
      *
      * @param data      raw data which was signed
      * @param signature to proof the validity of the sender
@@ -85,40 +98,40 @@ public final class Signatures {
      * @return true if the signature verification succeeds.
      */
     public static boolean verify(byte[] data, byte[] signature, byte[] publicKey) throws InvalidKeySpecException, NoSuchAlgorithmException, InvalidKeyException, SignatureException {
-        // construct a public key from raw bytes
-        var publicKeyObj = keyFactory.generatePublic(
-                new X509EncodedKeySpec(publicKey)
-        );
-
-        // do the verification
-        var sig = getSignatureObj();
-        sig.initVerify(publicKeyObj);
-        sig.update(data);
-        return sig.verify(signature);
+        return verify(data, signature, toPublicKey(publicKey));
+    }
+
+    /**
+     * Verify if the given signature is valid regarding the data and an already parsed RSA publicKey.
+     *
+     * @param data      raw data which was signed
+     * @param signature to proof the validity of the sender
+     * @param publicKey key to verify the data was signed by owner of corresponding private key
+     * @return true if the signature verification succeeds.
+     */
+    public static boolean verify(byte[] data, byte[] signature, PublicKey publicKey) throws InvalidKeyException, SignatureException {
+        return RSA.verify(data, signature, publicKey);
     }
 
     /**
-     * Sign given data with a private key
+     * Construct an RSA PublicKey-object from raw bytes, as stored in an Address.
+     *
+     * @param publicKey X.509 encoded public key
+     * @return the parsed PublicKey
+     */
+    public static PublicKey toPublicKey(byte[] publicKey) throws InvalidKeySpecException {
+        return RSA.toPublicKey(publicKey);
+    }
+
+    /**
+     * Sign given data with an RSA private key
      *
      * @param data       raw data to sign
      * @param privateKey to use for the signage process
      * @return signature of data which can be verified with corresponding public key
      */
     public static byte[] sign(byte[] data, byte[] privateKey) throws InvalidKeySpecException, NoSuchAlgorithmException, InvalidKeyException, SignatureException {
-        // construct a PrivateKey-object from raw bytes
-        var privateKeyObj = keyFactory.generatePrivate(
-                new PKCS8EncodedKeySpec(privateKey)
-        );
-
-        // do the signage
-        var sig = getSignatureObj();
-        sig.initSign(privateKeyObj);
-        sig.update(data);
-        return sig.sign();
-    }
-
-    private static Signature getSignatureObj() throws NoSuchAlgorithmException {
-        return Signature.getInstance("SHA1withRSA");
+        return RSA.sign(data, RSA.toPrivateKey(privateKey));
     }
 
 }
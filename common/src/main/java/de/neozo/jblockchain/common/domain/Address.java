@@ -1,9 +1,12 @@
 package de.neozo.jblockchain.common.domain;
 
 import de.neozo.jblockchain.common.Hashes;
+import de.neozo.jblockchain.common.Signatures;
 
 import java.util.Arrays;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public class Address implements Hashable {
 
     /**
@@ -21,9 +24,24 @@ public class Address implements Hashable {
      */
     private final byte[] publicKey;
 
+    /**
+     * Name of the SignatureScheme the publicKey belongs to, see Signatures.forName(String)
+     */
+    private final String signatureScheme;
+
     public Address(String name, byte[] publicKey) {
+        this(name, publicKey, Signatures.RSA.getName());
+    }
+
+    /**
+     * @param signatureScheme name of the SignatureScheme in any case, stored as the canonical name so the hash
+     *                        does not depend on the spelling, RSA if null
+     * @throws IllegalArgumentException if no scheme has the given name
+     */
+    public Address(String name, byte[] publicKey, String signatureScheme) {
         this.name = name;
         this.publicKey = publicKey;
+        this.signatureScheme = signatureScheme == null ? Signatures.RSA.getName() : Signatures.forName(signatureScheme).getName();
         this.hash = calculateHash();
     }
 
@@ -40,13 +58,20 @@ public class Address implements Hashable {
         return name;
     }
 
+    public String getSignatureScheme() {
+        return signatureScheme;
+    }
+
     /**
-     * Calculates the hash using relevant fields of this type
+     * Calculates the hash using relevant fields of this type.
+     * The signatureScheme is part of it unless it is RSA, so Addresses created before there were
+     * other schemes keep their hash.
      *
      * @return SHA256-hash as raw bytes
      */
     private byte[] calculateHash() {
-        return Hashes.digest(name.getBytes(), publicKey);
+        if (signatureScheme.equals(Signatures.RSA.getName())) return Hashes.digest(name.getBytes(), publicKey);
+        return Hashes.digest(name.getBytes(), publicKey, signatureScheme.getBytes(UTF_8));
     }
 
     @Override
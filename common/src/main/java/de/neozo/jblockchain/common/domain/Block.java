@@ -2,17 +2,26 @@ package de.neozo.jblockchain.common.domain;
 
 
 import de.neozo.jblockchain.common.Hashes;
+import de.neozo.jblockchain.common.HeaderEncoder;
+import de.neozo.jblockchain.common.MerkleTree;
 
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
-import static de.neozo.jblockchain.common.Bytes.toByteArray;
+import static de.neozo.jblockchain.common.HeaderEncoder.LEGACY_VERSION;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toCollection;
 
 public class Block implements Hashable {
 
+    /**
+     * Version of the binary header format used for hashing, see HeaderEncoder
+     */
+    private final int version;
+
     /**
      * Unique identifier which can be generated by hashing previousBlockHash, merkleRoot, tries and timestamp
      */
@@ -33,7 +42,16 @@ public class Block implements Hashable {
      */
     private final byte[] merkleRoot;
 
+    /**
+     * Tree the merkleRoot was taken from, kept to create inclusion proofs. Not available for legacy Blocks.
+     */
+    private final MerkleTree merkleTree;
+
+    /**
+     * Number of leading zero bits the hash of this Block is required to have
+     */
     private final int difficulty;
+
     /**
      * Self-chosen number to manipulate the Block hash
      */
@@ -45,15 +63,25 @@ public class Block implements Hashable {
     private final long timestamp;
 
     public Block(byte[] previousHash, List<Transaction> transactions, int difficulty, long nonce, long timestamp) {
+        this(HeaderEncoder.VERSION, previousHash, transactions, difficulty, nonce, timestamp);
+    }
+
+    public Block(int version, byte[] previousHash, List<Transaction> transactions, int difficulty, long nonce, long timestamp) {
+        this.version = version;
         this.previousHash = previousHash;
         this.transactions = transactions;
         this.difficulty = difficulty;
         this.nonce = nonce;
         this.timestamp = timestamp;
-        this.merkleRoot = calculateMerkleRoot();
+        this.merkleTree = version == LEGACY_VERSION ? null : buildMerkleTree(transactions);
+        this.merkleRoot = merkleTree == null ? calculateMerkleRoot() : merkleTree.getRoot();
         this.hash = calculateHash();
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     public byte[] getHash() {
         return hash;
     }
@@ -70,6 +98,10 @@ public class Block implements Hashable {
         return merkleRoot;
     }
 
+    public int getDifficulty() {
+        return difficulty;
+    }
+
     public long getNonce() {
         return nonce;
     }
@@ -84,13 +116,20 @@ public class Block implements Hashable {
      * @return SHA256-hash as raw bytes
      */
     public byte[] calculateHash() {
-        return Hashes.digest(
-                previousHash == null ? new byte[0] : previousHash,
-                merkleRoot,
-                toByteArray(difficulty),
-                toByteArray(timestamp),
-                toByteArray(nonce)
-        );
+        return HeaderEncoder.hashBlockHeader(version, previousHash, merkleRoot, difficulty, timestamp, nonce);
+    }
+
+    /**
+     * Create a proof that a Transaction is part of this Block
+     *
+     * @param transactionHash hash of the Transaction
+     * @return the proof, empty if the Transaction is not part of this Block or this is a legacy Block
+     */
+    public Optional<MerkleProof> getMerkleProof(byte[] transactionHash) {
+        if (merkleTree == null) return Optional.empty();
+
+        var index = merkleTree.indexOf(transactionHash);
+        return index < 0 ? Optional.empty() : Optional.of(merkleTree.getProof(index));
     }
 
     /**
@@ -100,6 +139,9 @@ public class Block implements Hashable {
      * @return SHA256-hash as raw bytes
      */
     public byte[] calculateMerkleRoot() {
+        if (version != LEGACY_VERSION) return calculateMerkleRoot(transactions);
+
+        // legacy Blocks pair the hashes in a queue, which mixes levels for odd numbers of Transactions
         var queue = transactions.stream().map(Transaction::getHash).collect(toCollection(LinkedList::new));
         while (queue.size() > 1) {
             queue.offer(Hashes.digest(queue.poll(), queue.poll()));
@@ -107,6 +149,20 @@ public class Block implements Hashable {
         return queue.poll();
     }
 
+    /**
+     * Calculates the Hash of the given transactions as hash tree, without constructing a Block.
+     *
+     * @param transactions Transactions to include
+     * @return SHA256-hash as raw bytes
+     */
+    public static byte[] calculateMerkleRoot(List<Transaction> transactions) {
+        return buildMerkleTree(transactions).getRoot();
+    }
+
+    private static MerkleTree buildMerkleTree(List<Transaction> transactions) {
+        return new MerkleTree(transactions.stream().map(Transaction::getHash).collect(toList()));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,40 @@
+package de.neozo.jblockchain.common.domain;
+
+
+import de.neozo.jblockchain.common.HeaderEncoder;
+
+/**
+ * The hashed fields of a Block without its Transactions.
+ * Enough to follow the chain and check the proof of work, at a fraction of the size of the Block.
+ *
+ * @param version      version of the header format, see HeaderEncoder
+ * @param hash         hash of the Block
+ * @param previousHash hash of previous Block in chain, null for the first Block
+ * @param merkleRoot   hash of all Transaction hashes of the Block
+ * @param difficulty   number of leading zero bits the hash is required to have
+ * @param timestamp    creation time of the Block
+ * @param nonce        self-chosen number to manipulate the hash
+ */
+public record BlockHeader(int version, byte[] hash, byte[] previousHash, byte[] merkleRoot, int difficulty, long timestamp, long nonce) {
+
+    public static BlockHeader of(Block block) {
+        return new BlockHeader(
+                block.getVersion(),
+                block.getHash(),
+                block.getPreviousHash(),
+                block.getMerkleRoot(),
+                block.getDifficulty(),
+                block.getTimestamp(),
+                block.getNonce()
+        );
+    }
+
+    /**
+     * Calculates the hash the same way as Block.calculateHash()
+     *
+     * @return SHA256-hash as raw bytes
+     */
+    public byte[] calculateHash() {
+        return HeaderEncoder.hashBlockHeader(version, previousHash, merkleRoot, difficulty, timestamp, nonce);
+    }
+}
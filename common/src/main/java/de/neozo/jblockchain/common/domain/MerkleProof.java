@@ -0,0 +1,43 @@
+package de.neozo.jblockchain.common.domain;
+
+
+import de.neozo.jblockchain.common.Hashes;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Proof that a Transaction is part of a Block, without the need to know all other Transactions of the Block.
+ *
+ * @param transaction hash of the Transaction
+ * @param index       position of the Transaction in the Block
+ * @param siblings    hashes paired with the Transaction and its parents on the way to the root, from bottom to top
+ * @param merkleRoot  root of the Block this proof was created for
+ */
+public record MerkleProof(byte[] transaction, int index, List<byte[]> siblings, byte[] merkleRoot) {
+
+    /**
+     * Hash the Transaction with all siblings up to the root
+     *
+     * @return SHA256-hash of the resulting root as raw bytes
+     */
+    public byte[] calculateRoot() {
+        var hash = transaction;
+        var position = index;
+        for (var sibling : siblings) {
+            hash = (position & 1) == 0 ? Hashes.digest(hash, sibling) : Hashes.digest(sibling, hash);
+            position >>= 1;
+        }
+        return hash;
+    }
+
+    /**
+     * Check the proof against a trusted merkle root, e.g. from a Block header
+     *
+     * @param trustedRoot merkle root of the Block
+     * @return true if the Transaction is part of the Block with this merkle root
+     */
+    public boolean verify(byte[] trustedRoot) {
+        return Arrays.equals(calculateRoot(), trustedRoot);
+    }
+}
@@ -1,13 +1,16 @@
 package de.neozo.jblockchain.common.domain;
 
 
-import de.neozo.jblockchain.common.Hashes;
+import de.neozo.jblockchain.common.HeaderEncoder;
 
 import java.util.Arrays;
 
-import static de.neozo.jblockchain.common.Bytes.toByteArray;
-
 public class Transaction implements Hashable {
+    /**
+     * Version of the binary format used for hashing, see HeaderEncoder
+     */
+    private final int version;
+
     /**
      * Unique identifier which can be generated by hashing text, senderHash, signature and timestamp
      */
@@ -34,6 +37,11 @@ public class Transaction implements Hashable {
     private final long timestamp;
 
     public Transaction(byte[] payload, byte[] sender, byte[] signature, long timestamp) {
+        this(HeaderEncoder.VERSION, payload, sender, signature, timestamp);
+    }
+
+    public Transaction(int version, byte[] payload, byte[] sender, byte[] signature, long timestamp) {
+        this.version = version;
         this.payload = payload;
         this.sender = sender;
         this.signature = signature;
@@ -41,6 +49,10 @@ public class Transaction implements Hashable {
         this.hash = calculateHash();
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     public byte[] getHash() {
         return hash;
     }
@@ -67,12 +79,7 @@ public class Transaction implements Hashable {
      * @return SHA256-hash as raw bytes
      */
     public byte[] calculateHash() {
-        return Hashes.digest(
-                payload,
-                sender,
-                signature,
-                toByteArray(timestamp)
-        );
+        return HeaderEncoder.hashTransaction(version, payload, sender, signature, timestamp);
     }
 
     @Override
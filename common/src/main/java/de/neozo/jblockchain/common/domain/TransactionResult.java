@@ -0,0 +1,11 @@
+package de.neozo.jblockchain.common.domain;
+
+
+/**
+ * Outcome of submitting a single Transaction as part of a batch
+ *
+ * @param hash     hash of the submitted Transaction
+ * @param accepted true if the Transaction is valid and in pool now
+ */
+public record TransactionResult(byte[] hash, boolean accepted) {
+}
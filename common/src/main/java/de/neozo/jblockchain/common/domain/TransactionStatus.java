@@ -0,0 +1,18 @@
+package de.neozo.jblockchain.common.domain;
+
+
+/**
+ * State of a Transaction known to a Node, either waiting in the pool or confirmed in a Block
+ *
+ * @param transaction the Transaction
+ * @param confirmed   true if the Transaction is part of a Block in chain
+ * @param blockHash   hash of the Block containing the Transaction, null if not confirmed
+ * @param height      height of that Block, -1 if not confirmed
+ * @param position    index of the Transaction within that Block, -1 if not confirmed
+ */
+public record TransactionStatus(Transaction transaction, boolean confirmed, byte[] blockHash, long height, int position) {
+
+    public static TransactionStatus pending(Transaction transaction) {
+        return new TransactionStatus(transaction, false, null, -1, -1);
+    }
+}
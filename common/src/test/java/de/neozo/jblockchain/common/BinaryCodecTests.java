@@ -0,0 +1,95 @@
+package de.neozo.jblockchain.common;
+
+
+import de.neozo.jblockchain.common.domain.Address;
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.BlockHeader;
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryCodecTests {
+
+    private final static byte[] sender = Hashes.digest("sender".getBytes(UTF_8));
+
+    @Test
+    public void block_roundTrip() {
+        var transactions = List.of(
+                new Transaction("Hello 0".getBytes(UTF_8), sender, new byte[]{1, 2, 3}, 42),
+                new Transaction(HeaderEncoder.LEGACY_VERSION, "Hello 1".getBytes(UTF_8), sender, new byte[0], 43)
+        );
+        var first = new Block(null, transactions, 8, 7, 1000);
+        var second = new Block(HeaderEncoder.LEGACY_VERSION, first.getHash(), transactions.subList(1, 2), 9, 8, 2000);
+
+        for (var block : List.of(first, second)) {
+            var data = BinaryCodec.encode(block);
+            assertEquals(BinaryCodec.getLength(block), data.length);
+
+            var decoded = BinaryCodec.decodeBlock(data);
+            assertArrayEquals(block.getHash(), decoded.getHash());
+            assertArrayEquals(block.getPreviousHash(), decoded.getPreviousHash());
+            assertEquals(block.getVersion(), decoded.getVersion());
+            assertEquals(block.getTransactions().toList(), decoded.getTransactions().toList());
+        }
+    }
+
+    @Test
+    public void transaction_roundTrip() {
+        var transaction = new Transaction("Hello".getBytes(UTF_8), sender, new byte[]{4, 5}, 44);
+        var decoded = BinaryCodec.decodeTransaction(BinaryCodec.encode(transaction));
+
+        assertEquals(transaction, decoded);
+        assertArrayEquals(transaction.getPayload(), decoded.getPayload());
+    }
+
+    @Test
+    public void address_canonicalScheme() {
+        var address = new Address("Erika Mustermann", new byte[]{1, 2, 3}, Signatures.ED25519.getName());
+        var lowerCase = new Address("Erika Mustermann", new byte[]{1, 2, 3}, "ed25519");
+
+        assertEquals(Signatures.ED25519.getName(), lowerCase.getSignatureScheme());
+        assertArrayEquals(address.getHash(), lowerCase.getHash());
+        assertThrows(IllegalArgumentException.class, () -> new Address("Erika Mustermann", new byte[]{1, 2, 3}, "DSA"));
+    }
+
+    @Test
+    public void address_roundTrip() {
+        var address = new Address("Erika Mustermann", new byte[]{1, 2, 3}, Signatures.ED25519.getName());
+        var buffer = ByteBuffer.allocate(BinaryCodec.getLength(address));
+        BinaryCodec.write(buffer, address);
+        var decoded = BinaryCodec.readAddress(buffer.flip());
+
+        assertArrayEquals(address.getHash(), decoded.getHash());
+        assertEquals(address.getSignatureScheme(), decoded.getSignatureScheme());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void blockHeader_roundTrip() {
+        var first = new Block(null, List.of(new Transaction("Hello".getBytes(UTF_8), sender, new byte[]{1}, 42)), 8, 7, 1000);
+        var second = new Block(first.getHash(), List.of(new Transaction("World".getBytes(UTF_8), sender, new byte[]{2}, 43)), 8, 9, 2000);
+        var buffer = ByteBuffer.allocate(2 * BinaryCodec.HEADER_ONLY_LENGTH);
+        BinaryCodec.write(buffer, BlockHeader.of(first));
+        BinaryCodec.write(buffer, BlockHeader.of(second));
+        buffer.flip();
+
+        var decodedFirst = BinaryCodec.readBlockHeader(buffer);
+        var decodedSecond = BinaryCodec.readBlockHeader(buffer);
+        assertNull(decodedFirst.previousHash());
+        assertArrayEquals(first.getHash(), decodedFirst.hash());
+        assertArrayEquals(second.getHash(), decodedSecond.hash());
+        assertArrayEquals(second.getMerkleRoot(), decodedSecond.merkleRoot());
+    }
+
+    @Test
+    public void decode_truncated() {
+        var data = BinaryCodec.encode(new Block(null, List.of(new Transaction(new byte[10], sender, new byte[3], 1)), 8, 7, 1000));
+        assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decodeBlock(Arrays.copyOf(data, data.length - 1)));
+    }
+}
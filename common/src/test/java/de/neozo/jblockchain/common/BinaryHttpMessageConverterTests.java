@@ -0,0 +1,138 @@
+package de.neozo.jblockchain.common;
+
+
+import de.neozo.jblockchain.common.domain.Address;
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryHttpMessageConverterTests {
+
+    private final static byte[] sender = Hashes.digest("sender".getBytes(UTF_8));
+
+    private final BinaryHttpMessageConverter converter = new BinaryHttpMessageConverter();
+
+    @Test
+    public void single_roundTrip() throws Exception {
+        var address = new Address("Max Mustermann", new byte[]{1, 2, 3});
+        var decoded = (Address) converter.read(Address.class, null, input(write(address, Address.class)));
+        assertArrayEquals(address.getHash(), decoded.getHash());
+    }
+
+    @Test
+    public void array_roundTrip() throws Exception {
+        var blocks = new Block[]{block(1), block(2)};
+        var decoded = (Block[]) converter.read(Block[].class, null, input(write(blocks, Block[].class)));
+
+        assertEquals(2, decoded.length);
+        assertArrayEquals(blocks[1].getHash(), decoded[1].getHash());
+    }
+
+    @Test
+    public void iterable_readAsList() throws Exception {
+        var transactions = List.of(transaction(1), transaction(2), transaction(3));
+        var iterable = new ParameterizedTypeReference<Iterable<Transaction>>() {}.getType();
+        var list = new ParameterizedTypeReference<List<Transaction>>() {}.getType();
+        Iterable<Transaction> written = transactions::iterator;
+
+        assertTrue(converter.canWrite(iterable, written.getClass(), BinaryHttpMessageConverter.MEDIA_TYPE));
+        assertEquals(transactions, converter.read(list, null, input(write(written, iterable))));
+    }
+
+    @Test
+    public void readEach_stopsWhenRejected() throws Exception {
+        var blocks = new Block[]{block(1), block(2), block(3)};
+        var body = write(blocks, Block[].class);
+        var seen = new ArrayList<Block>();
+
+        var accepted = BinaryHttpMessageConverter.readEach(new ByteArrayInputStream(body), Block.class, body.length, block -> {
+            seen.add(block);
+            return seen.size() < 2;
+        });
+
+        assertEquals(1, accepted);
+        assertEquals(2, seen.size());
+        assertArrayEquals(blocks[1].getHash(), seen.get(1).getHash());
+        assertThrows(EOFException.class, () -> BinaryHttpMessageConverter.readEach(
+                new ByteArrayInputStream(Arrays.copyOf(body, body.length - 1)), Block.class, body.length, block -> true));
+    }
+
+    @Test
+    public void read_rejectsOversizedElements() throws Exception {
+        // a huge length prefix fails before the element is allocated
+        assertThrows(IllegalArgumentException.class, () -> BinaryHttpMessageConverter.readEach(
+                new ByteArrayInputStream(new byte[]{0x7f, -1, -1, -1}), Block.class, 1024, block -> true));
+
+        var small = new BinaryHttpMessageConverter(BinaryCodec::encode, 16);
+        var address = write(new Address("Max Mustermann", new byte[]{1, 2, 3}), Address.class);
+        assertThrows(HttpMessageNotReadableException.class, () -> small.read(Address.class, null, input(address)));
+        assertThrows(HttpMessageNotReadableException.class, () -> small.read(Block[].class, null, input(write(new Block[]{block(1)}, Block[].class))));
+    }
+
+    @Test
+    public void canRead_onlyDomainTypes() {
+        assertTrue(converter.canRead(Block.class, BinaryHttpMessageConverter.MEDIA_TYPE));
+        assertFalse(converter.canRead(String.class, BinaryHttpMessageConverter.MEDIA_TYPE));
+        assertFalse(converter.canRead(Block.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<String>>() {}.getType(), List.class, null));
+    }
+
+    private byte[] write(Object object, Type type) throws Exception {
+        var body = new ByteArrayOutputStream();
+        converter.write(object, type, BinaryHttpMessageConverter.MEDIA_TYPE, new HttpOutputMessage() {
+            private final HttpHeaders headers = new HttpHeaders();
+
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        });
+        return body.toByteArray();
+    }
+
+    private static HttpInputMessage input(byte[] data) {
+        return new HttpInputMessage() {
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return new HttpHeaders();
+            }
+        };
+    }
+
+    private static Transaction transaction(int i) {
+        return new Transaction(("Hello " + i).getBytes(UTF_8), sender, new byte[]{(byte) i}, i);
+    }
+
+    private static Block block(int i) {
+        return new Block(null, List.of(transaction(i)), 8, i, i);
+    }
+}
@@ -0,0 +1,43 @@
+package de.neozo.jblockchain.common;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HashesTests {
+
+    private final static byte[] data = "Lorem ipsum dolor sit amet".getBytes(UTF_8);
+
+    @Test
+    public void digest_slices() throws Exception {
+        var expected = MessageDigest.getInstance("SHA-256").digest(Arrays.copyOfRange(data, 6, 11));
+
+        assertArrayEquals(expected, Hashes.digest(data, 6, 5));
+        assertArrayEquals(expected, Hashes.digest(ByteBuffer.wrap(data, 6, 5)));
+    }
+
+    @Test
+    public void digest_intoTarget() throws Exception {
+        var expected = MessageDigest.getInstance("SHA-256").digest(data);
+        var target = new byte[Hashes.LENGTH + 2];
+
+        Hashes.digest(data, 0, data.length, target, 1);
+        assertArrayEquals(expected, Arrays.copyOfRange(target, 1, Hashes.LENGTH + 1));
+
+        Hashes.digest(ByteBuffer.wrap(data), target, 2);
+        assertArrayEquals(expected, Arrays.copyOfRange(target, 2, Hashes.LENGTH + 2));
+    }
+
+    @Test
+    public void digest_afterFailedCall() throws Exception {
+        assertThrows(NullPointerException.class, () -> Hashes.digest(data, (byte[]) null));
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(data), Hashes.digest(data));
+    }
+}
@@ -0,0 +1,96 @@
+package de.neozo.jblockchain.common;
+
+
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HeaderEncoderTests {
+
+    private final static byte[] sender = filled(0x11);
+
+    private final static List<Transaction> transactions = List.of(
+            new Transaction("Hello 0".getBytes(UTF_8), sender, new byte[]{1, 2, 3}, 42),
+            new Transaction("Hello 1".getBytes(UTF_8), sender, new byte[]{4, 5, 6}, 43)
+    );
+
+    @Test
+    public void writeBlockHeader_layout() {
+        var previousHash = filled(0x22);
+        var merkleRoot = filled(0x33);
+        var buffer = ByteBuffer.allocate(HeaderEncoder.BLOCK_HEADER_LENGTH);
+
+        HeaderEncoder.writeBlockHeader(buffer, previousHash, merkleRoot, 0x01020304, 0x05060708090a0b0cL, 0x0d0e0f1011121314L);
+
+        var header = buffer.array();
+        assertEquals(HeaderEncoder.BLOCK_HEADER_LENGTH, buffer.position());
+        assertArrayEquals(new byte[]{0, 0, 0, HeaderEncoder.VERSION}, Arrays.copyOfRange(header, 0, 4));
+        assertArrayEquals(previousHash, Arrays.copyOfRange(header, 4, 36));
+        assertArrayEquals(merkleRoot, Arrays.copyOfRange(header, 36, 68));
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, Arrays.copyOfRange(header, 68, 72));
+        assertArrayEquals(new byte[]{5, 6, 7, 8, 9, 10, 11, 12}, Arrays.copyOfRange(header, 72, 80));
+        assertArrayEquals(new byte[]{13, 14, 15, 16, 17, 18, 19, 20}, Arrays.copyOfRange(header, HeaderEncoder.NONCE_OFFSET, 88));
+    }
+
+    @Test
+    public void hashBlockHeader_firstBlock() {
+        var block = new Block(null, transactions, 24, 7, 42);
+        var header = ByteBuffer.allocate(HeaderEncoder.BLOCK_HEADER_LENGTH);
+        HeaderEncoder.writeBlockHeader(header, new byte[Hashes.LENGTH], block.getMerkleRoot(), 24, 42, 7);
+
+        assertArrayEquals(Hashes.digest(header.array()), block.getHash());
+    }
+
+    @Test
+    public void hashBlockHeader_legacy() {
+        var block = new Block(HeaderEncoder.LEGACY_VERSION, null, transactions, 3, 7, 42);
+        var expected = Hashes.digest(
+                block.getMerkleRoot(),
+                new byte[]{0, 0, 0, 3},
+                Bytes.toByteArray(42L),
+                Bytes.toByteArray(7L)
+        );
+
+        assertArrayEquals(expected, block.getHash());
+    }
+
+    @Test
+    public void hashTransaction_layout() {
+        var transaction = transactions.get(0);
+        var expected = ByteBuffer.allocate(HeaderEncoder.TRANSACTION_HEADER_LENGTH + 7 + 3)
+                .putInt(HeaderEncoder.VERSION)
+                .put(sender)
+                .putLong(42)
+                .putInt(7)
+                .putInt(3)
+                .put("Hello 0".getBytes(UTF_8))
+                .put(new byte[]{1, 2, 3});
+
+        assertArrayEquals(Hashes.digest(expected.array()), transaction.getHash());
+    }
+
+    @Test
+    public void blockHeaderHasher_matchesBlock() {
+        var previousHash = filled(0x22);
+        var merkleRoot = Block.calculateMerkleRoot(transactions);
+        var hasher = new BlockHeaderHasher(previousHash, merkleRoot, 24, 42);
+
+        for (var nonce : new long[]{0, 1, 255, 1L << 40, -1}) {
+            assertArrayEquals(new Block(previousHash, transactions, 24, nonce, 42).getHash(), hasher.hash(nonce));
+        }
+    }
+
+    private static byte[] filled(int value) {
+        var result = new byte[Hashes.LENGTH];
+        Arrays.fill(result, (byte) value);
+        return result;
+    }
+}
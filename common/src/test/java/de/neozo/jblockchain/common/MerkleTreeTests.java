@@ -0,0 +1,106 @@
+package de.neozo.jblockchain.common;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static de.neozo.jblockchain.common.Bytes.toByteArray;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MerkleTreeTests {
+
+    @Test
+    public void getRoot_empty() {
+        assertArrayEquals(new byte[Hashes.LENGTH], new MerkleTree(List.of()).getRoot());
+    }
+
+    @Test
+    public void getRoot_singleLeaf() {
+        var leaf = leaves(1).get(0);
+        assertArrayEquals(leaf, new MerkleTree(List.of(leaf)).getRoot());
+    }
+
+    @Test
+    public void getRoot_oddLeavesPairedWithThemselves() {
+        var leaves = leaves(3);
+        var expected = Hashes.digest(
+                Hashes.digest(leaves.get(0), leaves.get(1)),
+                Hashes.digest(leaves.get(2), leaves.get(2))
+        );
+        assertArrayEquals(expected, new MerkleTree(leaves).getRoot());
+    }
+
+    @Test
+    public void getRoot_largeTreeHashedInParallel() {
+        var leaves = leaves(5001);
+        assertArrayEquals(calculateRoot(leaves), new MerkleTree(leaves).getRoot());
+    }
+
+    @Test
+    public void getProof_everyLeaf() {
+        for (var size = 1; size <= 17; size++) {
+            var leaves = leaves(size);
+            var tree = new MerkleTree(leaves);
+            for (var i = 0; i < size; i++) {
+                var proof = tree.getProof(i);
+                assertEquals(i, tree.indexOf(leaves.get(i)));
+                assertTrue(proof.verify(tree.getRoot()));
+            }
+        }
+    }
+
+    @Test
+    public void getProof_invalidForOtherRoot() {
+        var proof = new MerkleTree(leaves(5)).getProof(3);
+        assertFalse(proof.verify(new MerkleTree(leaves(6)).getRoot()));
+        assertEquals(-1, new MerkleTree(leaves(5)).indexOf(Hashes.digest(new byte[]{1})));
+    }
+
+    @Test
+    public void append_set_removeLast_matchRebuiltTree() {
+        var leaves = new ArrayList<>(leaves(40));
+        var tree = new MerkleTree(List.of());
+        for (var i = 0; i < leaves.size(); i++) {
+            tree.append(leaves.get(i));
+            assertArrayEquals(new MerkleTree(leaves.subList(0, i + 1)).getRoot(), tree.getRoot());
+        }
+        for (var i = 0; i < leaves.size(); i += 3) {
+            var leaf = Hashes.digest(leaves.get(i));
+            leaves.set(i, leaf);
+            tree.set(i, leaf);
+            assertArrayEquals(calculateRoot(leaves), tree.getRoot());
+        }
+        while (leaves.size() > 1) {
+            leaves.remove(leaves.size() - 1);
+            tree.removeLast();
+            assertArrayEquals(calculateRoot(leaves), tree.getRoot());
+            assertTrue(tree.getProof(leaves.size() - 1).verify(tree.getRoot()));
+        }
+        tree.removeLast();
+        assertEquals(0, tree.size());
+        assertArrayEquals(new byte[Hashes.LENGTH], tree.getRoot());
+    }
+
+    private static List<byte[]> leaves(int count) {
+        return IntStream.range(0, count).mapToObj(i -> Hashes.digest(toByteArray(i))).collect(toList());
+    }
+
+    /**
+     * Straightforward reference implementation
+     */
+    private static byte[] calculateRoot(List<byte[]> level) {
+        while (level.size() > 1) {
+            var parents = new ArrayList<byte[]>();
+            for (var i = 0; i < level.size(); i += 2) {
+                var right = level.get(Math.min(i + 1, level.size() - 1));
+                parents.add(Hashes.digest(level.get(i), right));
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+}
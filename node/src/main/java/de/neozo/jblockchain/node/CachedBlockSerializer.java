@@ -0,0 +1,48 @@
+package de.neozo.jblockchain.node;
+
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.node.service.BlockCache;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the JSON of a Block from BlockCache, only Blocks not cached yet are serialized by the default serializer
+ */
+class CachedBlockSerializer extends StdSerializer<Block> implements ResolvableSerializer {
+
+    private final JsonSerializer<Object> serializer;
+    private final BlockCache blockCache;
+
+    CachedBlockSerializer(JsonSerializer<Object> serializer, BlockCache blockCache) {
+        super(Block.class);
+        this.serializer = serializer;
+        this.blockCache = blockCache;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (serializer instanceof ResolvableSerializer resolvable) resolvable.resolve(provider);
+    }
+
+    @Override
+    public void serialize(Block block, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeRawValue(blockCache.getJson(block, x -> {
+            var json = new StringWriter();
+            try (var target = generator.getCodec().getFactory().createGenerator(json)) {
+                serializer.serialize(x, target, provider);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return json.toString();
+        }));
+    }
+}
@@ -0,0 +1,61 @@
+package de.neozo.jblockchain.node;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import de.neozo.jblockchain.common.BinaryHttpMessageConverter;
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.node.service.BlockCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final BlockCache blockCache;
+
+    /**
+     * Largest accepted binary encoding of a single Block, Transaction or Address in bytes
+     */
+    private final int maxElementSize;
+
+    @Autowired
+    public WebConfig(BlockCache blockCache, @Value("${max-element-size}") int maxElementSize) {
+        this.blockCache = blockCache;
+        this.maxElementSize = maxElementSize;
+    }
+
+    /**
+     * Offer the binary format to Nodes and clients asking for it. It is added last,
+     * so requests accepting anything still get JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryHttpMessageConverter(blockCache::getBinary, maxElementSize));
+    }
+
+    /**
+     * Serialize Blocks to JSON only once, picked up by the ObjectMapper of Spring Boot
+     */
+    @Bean
+    public Module blockCacheModule() {
+        return new SimpleModule("BlockCache").setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription description, JsonSerializer<?> serializer) {
+                if (description.getBeanClass() != Block.class) return serializer;
+                return new CachedBlockSerializer((JsonSerializer<Object>) serializer, blockCache);
+            }
+        });
+    }
+}
@@ -2,7 +2,9 @@ package de.neozo.jblockchain.node.rest;
 
 
 import de.neozo.jblockchain.common.domain.Address;
+import de.neozo.jblockchain.common.domain.TransactionStatus;
 import de.neozo.jblockchain.node.service.AddressService;
+import de.neozo.jblockchain.node.service.BlockService;
 import de.neozo.jblockchain.node.service.NodeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,7 +14,9 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Base64;
 import java.util.Collection;
+import java.util.List;
 
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.web.bind.annotation.RequestMethod.PUT;
 
@@ -23,12 +27,19 @@ public class AddressController {
 
     private final static Logger LOG = LoggerFactory.getLogger(AddressController.class);
 
+    /**
+     * Maximum number of Transactions returned per page
+     */
+    private static final int MAX_LIMIT = 1000;
+
     private final AddressService addressService;
+    private final BlockService blockService;
     private final NodeService nodeService;
 
     @Autowired
-    public AddressController(AddressService addressService, NodeService nodeService) {
+    public AddressController(AddressService addressService, BlockService blockService, NodeService nodeService) {
         this.addressService = addressService;
+        this.blockService = blockService;
         this.nodeService = nodeService;
     }
 
@@ -42,6 +53,22 @@ public class AddressController {
         return addressService.getAll()::iterator;
     }
 
+    /**
+     * Get the Transactions in chain sent by an Address, newest first
+     *
+     * @param hash   hash of the Address, Base64 encoded
+     * @param offset number of newest Transactions to skip
+     * @param limit  maximum number of Transactions to return, at most 1000
+     * @return JSON list of confirmed TransactionStatus, 400 if offset or limit are negative
+     */
+    @GetMapping(path = "{hash}/transactions")
+    List<TransactionStatus> getTransactions(@PathVariable String hash,
+                                            @RequestParam(defaultValue = "0") int offset,
+                                            @RequestParam(defaultValue = "100") int limit) {
+        if (offset < 0 || limit < 0) throw new ResponseStatusException(BAD_REQUEST);
+        return blockService.getTransactionsBySender(HashParam.decode(hash), offset, Math.min(limit, MAX_LIMIT));
+    }
+
 
     /**
      * Add a new Address
@@ -56,7 +83,9 @@ public class AddressController {
         if (addressService.getByHash(address.getHash()) != null) {
             throw new ResponseStatusException(CONFLICT);
         }
-        addressService.add(address);
+        if (!addressService.add(address)) {
+            throw new ResponseStatusException(BAD_REQUEST);
+        }
 
         if (publish != null && publish) {
             nodeService.broadcastPut("address", address);
@@ -2,6 +2,8 @@ package de.neozo.jblockchain.node.rest;
 
 
 import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.BlockHeader;
+import de.neozo.jblockchain.common.domain.MerkleProof;
 import de.neozo.jblockchain.node.service.BlockService;
 import de.neozo.jblockchain.node.service.MiningService;
 import de.neozo.jblockchain.node.service.NodeService;
@@ -9,6 +11,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.servlet.http.HttpServletResponse;
 import java.util.Base64;
@@ -16,6 +20,8 @@ import java.util.List;
 
 import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_ACCEPTABLE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 
 @RestController
@@ -36,13 +42,87 @@ public class BlockController {
     }
 
     /**
-     * Retrieve all Blocks in order of mine date, also known as Blockchain
+     * Retrieve all Blocks in order of mine date, also known as Blockchain.
+     * The Blocks are read from the block store while the response is written, so any range can be requested.
      *
-     * @return JSON list of Blocks
+     * @param fromHeight height of the first Block to return, used by Nodes which already have the Blocks before
+     * @param limit      maximum number of Blocks to return, all following Blocks if missing
+     * @param request    checked for If-None-Match, the tag is based on the last Block in chain
+     * @return JSON list of Blocks, or length-prefixed binary Blocks if requested, 400 if limit is negative,
+     * 304 if the chain did not change
      */
     @GetMapping
-    Iterable<Block> getBlockchain() {
-        return blockService.getBlockchain()::iterator;
+    Iterable<Block> getBlockchain(@RequestParam(defaultValue = "0") long fromHeight, @RequestParam(required = false) Long limit, WebRequest request) {
+        if (limit != null && limit < 0) throw new ResponseStatusException(BAD_REQUEST);
+        if (request.checkNotModified(ETags.of(blockService.getLastHash()))) return null;
+        if (limit == null) return blockService.getBlockchain(fromHeight)::iterator;
+        return blockService.getBlockchain(fromHeight, limit)::iterator;
+    }
+
+    /**
+     * Retrieve the headers of the Blocks in chain, which is enough to follow the chain and check the proof of work
+     *
+     * @param from  height of the first header to return
+     * @param limit maximum number of headers to return, all following headers if missing
+     * @param request checked for If-None-Match, the tag is based on the last Block in chain
+     * @return JSON list of BlockHeaders, or length-prefixed binary headers if requested, 400 if limit is negative,
+     * 304 if the chain did not change
+     */
+    @GetMapping(path = "headers")
+    Iterable<BlockHeader> getHeaders(@RequestParam(defaultValue = "0") long from, @RequestParam(required = false) Long limit, WebRequest request) {
+        if (limit != null && limit < 0) throw new ResponseStatusException(BAD_REQUEST);
+        if (request.checkNotModified(ETags.of(blockService.getLastHash()))) return null;
+        return blockService.getHeaders(from, limit == null ? Long.MAX_VALUE : limit)::iterator;
+    }
+
+    /**
+     * Retrieve the last Block in chain
+     *
+     * @param request checked for If-None-Match, the tag is based on the Block
+     * @return JSON Block, 404 if the chain is empty, 304 if the tip did not change
+     */
+    @GetMapping(path = "tip")
+    Block getTip(WebRequest request) {
+        return notModified(blockService.getTip().orElseThrow(() -> new ResponseStatusException(NOT_FOUND)), request);
+    }
+
+    /**
+     * Retrieve a single Block by its hash
+     *
+     * @param hash hash of the Block, Base64 encoded
+     * @param request checked for If-None-Match, the tag is based on the Block
+     * @return JSON Block, 404 if the Block is not part of the chain, 304 if the client has it already
+     */
+    @GetMapping(path = "{hash}")
+    Block getByHash(@PathVariable String hash, WebRequest request) {
+        return notModified(blockService.getByHash(HashParam.decode(hash)).orElseThrow(() -> new ResponseStatusException(NOT_FOUND)), request);
+    }
+
+    /**
+     * Retrieve a single Block by its position in chain
+     *
+     * @param height position of the Block, the first Block has height 0
+     * @param request checked for If-None-Match, the tag is based on the Block
+     * @return JSON Block, 404 if the chain is not that long, 304 if the client has it already
+     */
+    @GetMapping(path = "height/{height}")
+    Block getByHeight(@PathVariable long height, WebRequest request) {
+        return notModified(blockService.getByHeight(height).orElseThrow(() -> new ResponseStatusException(NOT_FOUND)), request);
+    }
+
+    /**
+     * Prove that a Transaction is part of a Block.
+     * Together with the merkle root of the Block, the proof is enough to verify the inclusion.
+     *
+     * @param hash   hash of the Block, Base64 encoded
+     * @param txHash hash of the Transaction, Base64 encoded
+     * @return JSON MerkleProof, 404 if Block or Transaction are unknown or the Block is in legacy format
+     */
+    @GetMapping(path = "{hash}/proof/{txHash}")
+    MerkleProof getMerkleProof(@PathVariable String hash, @PathVariable String txHash) {
+        return blockService.getByHash(HashParam.decode(hash))
+                .flatMap(block -> block.getMerkleProof(HashParam.decode(txHash)))
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND));
     }
 
     /**
@@ -69,6 +149,13 @@ public class BlockController {
         }
     }
 
+    /**
+     * @return the Block, null if the client already has it and the response is a 304
+     */
+    private static Block notModified(Block block, WebRequest request) {
+        return request.checkNotModified(ETags.of(block.getHash())) ? null : block;
+    }
+
     /**
      * Start mining of Blocks on this Node in a Thread
      */
@@ -0,0 +1,36 @@
+package de.neozo.jblockchain.node.rest;
+
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Weak entity tags for conditional GET requests. They are weak because JSON and binary representations
+ * of the same content share a tag.
+ */
+final class ETags {
+
+    /**
+     * Differs per start of the Node, so tags based on counters never match tags handed out before a restart
+     */
+    private static final String EPOCH = Long.toHexString(new SecureRandom().nextLong());
+
+    private ETags() {
+    }
+
+    /**
+     * @param hash hash identifying the content, null for no content
+     * @return tag which stays the same as long as the hash does
+     */
+    static String of(byte[] hash) {
+        return "W/\"" + (hash == null ? "empty" : Base64.getUrlEncoder().withoutPadding().encodeToString(hash)) + "\"";
+    }
+
+    /**
+     * @param version counter which changes whenever the content changes
+     * @return tag which stays the same as long as the version does, within one run of the Node
+     */
+    static String of(long version) {
+        return "W/\"" + EPOCH + "-" + version + "\"";
+    }
+}
@@ -0,0 +1,49 @@
+package de.neozo.jblockchain.node.rest;
+
+
+import de.neozo.jblockchain.node.service.HashKey;
+import de.neozo.jblockchain.node.service.SubscriptionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toSet;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+
+@RestController
+@RequestMapping("events")
+public class EventController {
+
+    private final SubscriptionService subscriptionService;
+
+    @Autowired
+    public EventController(SubscriptionService subscriptionService) {
+        this.subscriptionService = subscriptionService;
+    }
+
+    /**
+     * Subscribe to new Blocks and Transactions as Server-Sent Events, see SubscriptionService for the events.
+     * A client reconnecting with the id of the last received event as Last-Event-ID continues after that Block.
+     *
+     * @param address     hashes of sender Addresses whose Transactions to send, Base64 encoded, all Transactions if missing
+     * @param fromHeight  height of the first Block to send, only new Blocks if missing
+     * @param lastEventId height of the last Block the client received, takes precedence over fromHeight
+     * @return event stream, 400 if a height is negative
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter subscribe(@RequestParam(required = false) List<String> address,
+                         @RequestParam(required = false) Long fromHeight,
+                         @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        Set<HashKey> senders = address == null ? Set.of() : address.stream().map(x -> new HashKey(HashParam.decode(x))).collect(toSet());
+        if (lastEventId != null) fromHeight = lastEventId + 1;
+        if (fromHeight == null) return subscriptionService.subscribe(senders);
+        if (fromHeight < 0) throw new ResponseStatusException(BAD_REQUEST);
+        return subscriptionService.subscribe(senders, fromHeight);
+    }
+}
@@ -0,0 +1,33 @@
+package de.neozo.jblockchain.node.rest;
+
+
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Base64;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Hashes in request paths are URL-safe Base64 encoded, using '-' and '_' instead of '+' and '/'.
+ * Standard Base64 is accepted as well, as long as the hash contains no '/'.
+ */
+final class HashParam {
+
+    private HashParam() {
+    }
+
+    /**
+     * Decode a hash given in a request path
+     *
+     * @param hash Base64 encoded hash
+     * @return raw hash
+     * @throws ResponseStatusException with status 400 if the hash is no valid Base64
+     */
+    static byte[] decode(String hash) {
+        try {
+            return Base64.getDecoder().decode(hash.replace('-', '+').replace('_', '/'));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid hash " + hash);
+        }
+    }
+}
@@ -2,17 +2,27 @@ package de.neozo.jblockchain.node.rest;
 
 
 import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.common.domain.TransactionResult;
+import de.neozo.jblockchain.common.domain.TransactionStatus;
+import de.neozo.jblockchain.node.service.BlockService;
 import de.neozo.jblockchain.node.service.NodeService;
 import de.neozo.jblockchain.node.service.TransactionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
 
 
 @RestController()
@@ -22,42 +32,98 @@ public class TransactionController {
     private static final Logger LOG = LoggerFactory.getLogger(TransactionController.class);
 
     private final TransactionService transactionService;
+    private final BlockService blockService;
     private final NodeService nodeService;
 
+    /**
+     * Largest number of Transactions accepted in one batch
+     */
+    private final int maxBatchSize;
+
     @Autowired
-    public TransactionController(TransactionService transactionService, NodeService nodeService) {
+    public TransactionController(TransactionService transactionService, BlockService blockService, NodeService nodeService, @Value("${max-batch-size}") int maxBatchSize) {
         this.transactionService = transactionService;
+        this.blockService = blockService;
         this.nodeService = nodeService;
+        this.maxBatchSize = maxBatchSize;
     }
 
     /**
      * Retrieve all Transactions, which aren't in a block yet
      *
-     * @return JSON list of Transactions
+     * @param request checked for If-None-Match, the tag is based on the version of the pool
+     * @return JSON list of Transactions, 304 if the pool did not change
      */
     @GetMapping
-    Iterable<Transaction> getTransactionPool() {
+    Iterable<Transaction> getTransactionPool(WebRequest request) {
+        if (request.checkNotModified(ETags.of(transactionService.getVersion()))) return null;
         return transactionService.getTransactionPool()::iterator;
     }
 
+    /**
+     * Look up a single Transaction, either waiting in the pool or confirmed in a Block
+     *
+     * @param hash hash of the Transaction, Base64 encoded
+     * @return JSON TransactionStatus with the Block location if confirmed, 404 if the Transaction is unknown
+     */
+    @GetMapping(path = "{hash}")
+    TransactionStatus getTransaction(@PathVariable String hash) {
+        return blockService.getTransactionStatus(HashParam.decode(hash))
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND));
+    }
+
 
     /**
      * Add a new Transaction to the pool.
      * It is expected that the transaction has a valid signature and the correct hash.
+     * The request is answered asynchronously once the verification is done, relaying to the other Nodes
+     * does not delay the answer.
      *
      * @param transaction the Transaction to add
      * @param publish     if true, this Node is going to inform all other Nodes about the new Transaction
      */
     @PutMapping
-    void addTransaction(@RequestBody Transaction transaction, @RequestParam(required = false) Boolean publish) {
+    CompletableFuture<Void> addTransaction(@RequestBody Transaction transaction, @RequestParam(required = false) Boolean publish) {
         LOG.info("Add transaction {}", Base64.getEncoder().encodeToString(transaction.getHash()));
-        var success = transactionService.add(transaction);
+        return transactionService.addAsync(transaction).thenAccept(success -> {
+            if (!success) throw new ResponseStatusException(BAD_REQUEST);
 
-        if (!success) throw new ResponseStatusException(BAD_REQUEST);
+            if (publish != null && publish) {
+                nodeService.broadcastPut("transaction", transaction);
+            }
+        });
+    }
 
-        if (publish != null && publish) {
-            nodeService.broadcastPut("transaction", transaction);
+    /**
+     * Add several new Transactions to the pool at once.
+     * They are verified together and answered asynchronously once all of them are done.
+     * Invalid Transactions do not affect the others.
+     *
+     * @param transactions the Transactions to add
+     * @param publish      if true, this Node is going to inform all other Nodes about the accepted Transactions in one request
+     * @return JSON list of TransactionResults in order of the given Transactions, 413 if there are more than maxBatchSize
+     */
+    @PutMapping(path = "batch")
+    CompletableFuture<List<TransactionResult>> addTransactions(@RequestBody List<Transaction> transactions, @RequestParam(required = false) Boolean publish) {
+        LOG.info("Add {} transactions", transactions.size());
+        if (transactions.size() > maxBatchSize) {
+            throw new ResponseStatusException(PAYLOAD_TOO_LARGE, "At most " + maxBatchSize + " transactions per batch");
         }
+        return transactionService.addAllAsync(transactions).thenApply(accepted -> {
+            var results = new ArrayList<TransactionResult>(transactions.size());
+            var relayed = new ArrayList<Transaction>(transactions.size());
+            for (var i = 0; i < transactions.size(); i++) {
+                var transaction = transactions.get(i);
+                results.add(new TransactionResult(transaction.getHash(), accepted.get(i)));
+                if (accepted.get(i)) relayed.add(transaction);
+            }
+
+            if (publish != null && publish && !relayed.isEmpty()) {
+                // as array, generic lists are sent as JSON
+                nodeService.broadcastPut("transaction/batch", relayed.toArray(Transaction[]::new));
+            }
+            return results;
+        });
     }
 
 }
@@ -1,16 +1,20 @@
 package de.neozo.jblockchain.node.service;
 
 
+import de.neozo.jblockchain.common.Signatures;
 import de.neozo.jblockchain.common.domain.Address;
 import de.neozo.jblockchain.common.domain.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
@@ -24,7 +28,17 @@ public class AddressService {
     /**
      * Mapping of Address hash -> Address object
      */
-    private final Map<String, Address> addresses = new HashMap<>();
+    private final Map<String, Address> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * Mapping of Address hash -> parsed public key, so keys are not decoded again for every signature check
+     */
+    private final BoundedCache<HashKey, VerificationKey> publicKeys;
+
+    @Autowired
+    public AddressService(@Value("${public-key-cache-size}") int publicKeyCacheSize) {
+        this.publicKeys = new BoundedCache<>(publicKeyCacheSize);
+    }
 
     /**
      * Get a specific Address
@@ -36,6 +50,26 @@ public class AddressService {
         return addresses.get(Base64.getEncoder().encodeToString(hash));
     }
 
+    /**
+     * Get the parsed public key of a specific Address, together with its SignatureScheme
+     *
+     * @param hash hash of Address
+     * @return VerificationKey of the Address, null if the Address is unknown
+     */
+    public VerificationKey getVerificationKey(byte[] hash) throws InvalidKeySpecException {
+        var key = new HashKey(hash);
+        var verificationKey = publicKeys.get(key);
+        if (verificationKey != null) return verificationKey;
+
+        var address = getByHash(hash);
+        if (address == null) return null;
+
+        var scheme = Signatures.forName(address.getSignatureScheme());
+        verificationKey = new VerificationKey(scheme, scheme.toPublicKey(address.getPublicKey()));
+        publicKeys.put(key, verificationKey);
+        return verificationKey;
+    }
+
     /**
      * Return all Addresses from map
      *
@@ -46,12 +80,20 @@ public class AddressService {
     }
 
     /**
-     * Add a new Address to the map
+     * Add a new Address to the map, if its public key is valid for its SignatureScheme
      *
      * @param address Address to add
+     * @return false if the scheme is unknown or the public key belongs to another scheme
      */
-    public synchronized void add(Address address) {
+    public synchronized boolean add(Address address) {
+        try {
+            Signatures.forName(address.getSignatureScheme()).toPublicKey(address.getPublicKey());
+        } catch (IllegalArgumentException | InvalidKeySpecException e) {
+            LOG.warn("Public key of address {} does not match scheme {}", Base64.getEncoder().encodeToString(address.getHash()), address.getSignatureScheme());
+            return false;
+        }
         addresses.put(Base64.getEncoder().encodeToString(address.getHash()), address);
+        return true;
     }
 
     /**
@@ -0,0 +1,55 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.BinaryCodec;
+import de.neozo.jblockchain.common.domain.Block;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Serialized forms of recently requested Blocks, so each Block is encoded once instead of on every read.
+ * Blocks never change once created, the hash identifies the content.
+ */
+@Component
+public class BlockCache {
+
+    private final BoundedCache<HashKey, byte[]> binary;
+
+    private final BoundedCache<HashKey, String> json;
+
+    @Autowired
+    public BlockCache(@Value("${block-cache-size}") int blockCacheSize) {
+        this.binary = new BoundedCache<>(blockCacheSize);
+        this.json = new BoundedCache<>(blockCacheSize);
+    }
+
+    /**
+     * @return encoding of the Block by BinaryCodec, must not be modified
+     */
+    public byte[] getBinary(Block block) {
+        var key = new HashKey(block.getHash());
+        var encoded = binary.get(key);
+        if (encoded == null) {
+            encoded = BinaryCodec.encode(block);
+            binary.put(key, encoded);
+        }
+        return encoded;
+    }
+
+    /**
+     * @param serializer creates the JSON if the Block is not cached yet
+     * @return JSON of the Block
+     */
+    public String getJson(Block block, Function<Block, String> serializer) {
+        var key = new HashKey(block.getHash());
+        var serialized = json.get(key);
+        if (serialized == null) {
+            serialized = serializer.apply(block);
+            json.put(key, serialized);
+        }
+        return serialized;
+    }
+}
@@ -1,21 +1,44 @@
 package de.neozo.jblockchain.node.service;
 
 
+import de.neozo.jblockchain.common.BinaryHttpMessageConverter;
+import de.neozo.jblockchain.common.HeaderEncoder;
 import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.BlockHeader;
 import de.neozo.jblockchain.common.domain.Node;
+import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.common.domain.TransactionStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
-import static java.util.Collections.addAll;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 
 @Service
@@ -23,23 +46,175 @@ public class BlockService {
 
     private final static Logger LOG = LoggerFactory.getLogger(BlockService.class);
 
+    /**
+     * Difficulty in leading zero bits for the first Blocks, until the first retarget
+     */
     @Value("${difficulty}")
     public int difficulty;
 
+    /**
+     * Number of Blocks after which the difficulty is adjusted
+     */
+    @Value("${retarget-interval}")
+    public int retargetInterval;
+
+    /**
+     * Desired time between two Blocks in milliseconds
+     */
+    @Value("${block-interval}")
+    public long blockInterval;
+
+    /**
+     * Time in milliseconds a Block may be dated ahead of the own clock
+     */
+    @Value("${max-clock-drift}")
+    public long maxClockDrift;
+
     @Value("${max-transactions-per-block}")
     public int maxTransactionsPerBlock;
 
+    /**
+     * Number of Blocks requested at once when downloading the chain from other Node
+     */
+    @Value("${sync-page-size}")
+    public int syncPageSize;
+
+    /**
+     * Largest accepted binary encoding of a Block retrieved from other Node in bytes
+     */
+    @Value("${max-element-size}")
+    public int maxElementSize;
+
     private final TransactionService transactionService;
+    private final TransactionVerifier transactionVerifier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
 
-    private final Deque<Block> blockchain = new LinkedList<>();
+    private final BlockStore blockStore;
+
+    private final IndexStore indexStore;
+
+    private final DataDirectory dataDirectory;
+
+    /**
+     * Hash and height of every Block in blockStore, replaced only when loading
+     */
+    private HashIndex blockIndex = new HashIndex();
+
+    /**
+     * Last Block in chain, null if the chain is empty
+     */
+    private volatile Block tip;
+
+    /**
+     * Location of all Transactions which are part of a Block in chain
+     */
+    private TransactionIndex transactionIndex = new TransactionIndex();
+
+    /**
+     * Location of all Transactions in chain by sender Address
+     */
+    private SenderIndex senderIndex = new SenderIndex();
+
+    /**
+     * Held exclusively while Blocks are stored or replaced and shared while the indexes and the block store are read,
+     * so a location found in an index always points into the Block it was indexed for
+     */
+    private final ReadWriteLock chainLock = new ReentrantReadWriteLock();
 
     @Autowired
-    public BlockService(TransactionService transactionService) {
+    public BlockService(TransactionService transactionService, TransactionVerifier transactionVerifier, ApplicationEventPublisher eventPublisher, Clock clock, BlockStore blockStore, IndexStore indexStore, DataDirectory dataDirectory) {
         this.transactionService = transactionService;
+        this.transactionVerifier = transactionVerifier;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.blockStore = blockStore;
+        this.indexStore = indexStore;
+        this.dataDirectory = dataDirectory;
+    }
+
+    /**
+     * Continue with the chain persisted by a previous run.
+     * The indexes are restored from the last checkpoint, only Blocks appended afterwards are read and indexed.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        var height = blockStore.size();
+        if (height == 0) return;
+
+        chainLock.writeLock().lock();
+        try {
+            var indexed = readIndexes(height);
+            blockStore.stream(indexed).forEach(this::index);
+            tip = blockStore.get(height - 1);
+            LOG.info("Loaded {} blocks from block store, indexed {} of them", height, height - indexed);
+        } finally {
+            chainLock.writeLock().unlock();
+        }
+
+        // the pool journal may be behind the block store after a crash
+        transactionService.removeConfirmed(transactionIndex::contains);
+    }
+
+    /**
+     * Write a checkpoint of the indexes to the IndexStore, replacing the previous one
+     */
+    public synchronized void writeIndexes() {
+        if (tip == null) return;
+        indexStore.write(tip.getHash(), blockIndex, transactionIndex, senderIndex);
+    }
+
+    /**
+     * Restore the indexes from the last checkpoint, if it is valid and belongs to the stored chain
+     *
+     * @param height number of Blocks in blockStore
+     * @return number of Blocks covered by the restored indexes, 0 if there was no usable checkpoint
+     */
+    private long readIndexes(long height) {
+        var checkpoint = indexStore.read(height, x -> blockStore.get(x).getHash());
+        if (checkpoint == null) return 0;
+
+        blockIndex = checkpoint.blockIndex();
+        transactionIndex = checkpoint.transactionIndex();
+        senderIndex = checkpoint.senderIndex();
+        return blockIndex.size();
     }
 
     public Stream<Block> getBlockchain() {
-        return blockchain.stream();
+        return getBlockchain(0);
+    }
+
+    /**
+     * @param fromHeight height of the first Block to return
+     * @return all Blocks from the given height on
+     */
+    public Stream<Block> getBlockchain(long fromHeight) {
+        return blockStore.stream(Math.max(0, fromHeight));
+    }
+
+    /**
+     * @param fromHeight height of the first Block to return
+     * @param limit      maximum number of Blocks to return
+     * @return Blocks from the given height on, read lazily from the block store
+     */
+    public Stream<Block> getBlockchain(long fromHeight, long limit) {
+        return getBlockchain(fromHeight).limit(limit);
+    }
+
+    /**
+     * @param fromHeight height of the first header to return
+     * @param limit      maximum number of headers to return
+     * @return headers of the Blocks from the given height on
+     */
+    public Stream<BlockHeader> getHeaders(long fromHeight, long limit) {
+        return getBlockchain(fromHeight, limit).map(BlockHeader::of);
+    }
+
+    /**
+     * @return number of Blocks in chain
+     */
+    public long getHeight() {
+        return blockIndex.size();
     }
 
     /**
@@ -48,11 +223,159 @@ public class BlockService {
      * @return Last Block in chain
      */
     public byte[] getLastHash() {
-        return blockchain.isEmpty() ? null : blockchain.getLast().getHash();
+        var last = tip;
+        return last == null ? null : last.getHash();
+    }
+
+    /**
+     * @return the last Block in chain, empty if the chain is empty
+     */
+    public Optional<Block> getTip() {
+        return Optional.ofNullable(tip);
+    }
+
+    /**
+     * Find a Block in chain
+     *
+     * @param hash hash of the Block
+     * @return the matching Block, empty if it is not part of the chain
+     */
+    public Optional<Block> getByHash(byte[] hash) {
+        chainLock.readLock().lock();
+        try {
+            return getByHeight(blockIndex.find(hash));
+        } finally {
+            chainLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find a Block in chain
+     *
+     * @param height position of the Block in chain, starting at 0
+     * @return the matching Block, empty if the chain is not that long
+     */
+    public Optional<Block> getByHeight(long height) {
+        chainLock.readLock().lock();
+        try {
+            if (height < 0 || height >= blockIndex.size()) return Optional.empty();
+            return Optional.of(blockStore.get(height));
+        } finally {
+            chainLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find a Transaction in pool or in chain.
+     * The pool is checked first, a Transaction leaves it only after its Block was indexed.
+     *
+     * @param hash hash of the Transaction
+     * @return pending or confirmed state of the Transaction, empty if it is unknown
+     */
+    public Optional<TransactionStatus> getTransactionStatus(byte[] hash) {
+        var pending = transactionService.get(hash).map(TransactionStatus::pending);
+        if (pending.isPresent()) return pending;
+
+        chainLock.readLock().lock();
+        try {
+            return transactionIndex.find(hash).flatMap(location -> getByHeight(location.height())
+                    .flatMap(block -> toStatus(block, location, x -> Arrays.equals(x.getHash(), hash))));
+        } finally {
+            chainLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the Transactions in chain sent by an Address, newest first
+     *
+     * @param sender hash of the sender Address
+     * @param offset number of newest Transactions to skip
+     * @param limit  maximum number of Transactions to return
+     * @return confirmed states of the Transactions
+     */
+    public List<TransactionStatus> getTransactionsBySender(byte[] sender, int offset, int limit) {
+        var result = new ArrayList<TransactionStatus>();
+        chainLock.readLock().lock();
+        try {
+            Block block = null;
+            var height = -1L;
+            for (var location : senderIndex.find(sender, offset, limit)) {
+                // consecutive Transactions of a sender are often in the same Block
+                if (height != location.height()) {
+                    height = location.height();
+                    block = getByHeight(height).orElse(null);
+                }
+                if (block == null) break;
+                toStatus(block, location, x -> Arrays.equals(x.getSender(), sender)).ifPresent(result::add);
+            }
+        } finally {
+            chainLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Determine the difficulty the next Block has to fulfill.
+     * Every retargetInterval Blocks the difficulty of the last Block is adjusted
+     * by comparing the time the last Blocks took with the configured blockInterval.
+     *
+     * @return required number of leading zero bits
+     */
+    public synchronized int getDifficulty() {
+        var last = tip;
+        if (last == null) return difficulty;
+
+        var height = blockStore.size();
+        return getDifficulty(height, last.getDifficulty(),
+                x -> x == height - 1 ? last.getTimestamp() : blockStore.get(x).getTimestamp());
+    }
+
+    /**
+     * Determine the difficulty the next header of a branch has to fulfill, following the same rule as getDifficulty()
+     * on the chain made of the stored Blocks up to the fork and the headers of the branch
+     */
+    private int getDifficulty(Branch branch) {
+        var fork = branch.getForkHeight();
+        var size = branch.size();
+        if (fork + size == 0) return difficulty;
+
+        var last = size > 0 ? branch.getDifficulty(size - 1) : blockStore.get(fork - 1).getDifficulty();
+        return getDifficulty(fork + size, last,
+                x -> x >= fork ? branch.getTimestamp((int) (x - fork)) : blockStore.get(x).getTimestamp());
+    }
+
+    /**
+     * @return timestamp of the Block at the given height on the chain made of the stored Blocks up to the fork
+     * and the headers of the branch, Long.MIN_VALUE before the first Block
+     */
+    private long getTimestamp(Branch branch, long height) {
+        if (height < 0) return Long.MIN_VALUE;
+        var fork = branch.getForkHeight();
+        return height >= fork ? branch.getTimestamp((int) (height - fork)) : blockStore.get(height).getTimestamp();
+    }
+
+    /**
+     * @param height         number of Blocks before the next one, at least 1
+     * @param lastDifficulty difficulty of the Block at height - 1
+     * @param timestamps     timestamp of the Block at a given height
+     * @return required number of leading zero bits of the Block at height
+     */
+    private int getDifficulty(long height, int lastDifficulty, LongUnaryOperator timestamps) {
+        if (height % retargetInterval != 0) return lastDifficulty;
+
+        // Block mined retargetInterval Blocks before the last one, at most the first Block in chain
+        var gaps = Math.min(retargetInterval, height - 1);
+        if (gaps == 0) return lastDifficulty;
+
+        return ProofOfWork.retarget(
+                lastDifficulty,
+                timestamps.applyAsLong(height - 1) - timestamps.applyAsLong(height - 1 - gaps),
+                gaps * blockInterval
+        );
     }
 
     /**
-     * Append a new Block at the end of chain
+     * Append a new Block at the end of chain and publish a TipChangedEvent
      *
      * @param block Block to append
      * @return true if verifcation succeeds and Block was appended
@@ -60,59 +383,355 @@ public class BlockService {
     public synchronized boolean append(Block block) {
         if (!verify(block)) return false;
 
-        blockchain.add(block);
-
-        // remove transactions from pool
-        block.getTransactions().forEach(transactionService::remove);
+        store(block);
+        eventPublisher.publishEvent(new TipChangedEvent(block, blockIndex.size() - 1));
         return true;
     }
 
     /**
-     * Download Blocks from other Node and them to the blockchain
+     * Download the Blocks after the stored chain from other Node and append them.
+     * First the headers are downloaded and checked for linkage, difficulty and proof of work, which tells the height
+     * of the other chain without transferring any Transaction. If they continue the stored chain, the Blocks of the
+     * valid headers are downloaded page by page and appended as they arrive.
+     * <p>
+     * Otherwise the other chain forks from the stored one. The fork point is searched with single headers and
+     * the headers from there on are checked the same way. The stored chain is only replaced if that branch has
+     * more work than the stored Blocks after the fork, and only once all Blocks of the branch were downloaded
+     * and verified. Transactions of the replaced Blocks which are not part of the branch return to the pool.
      *
      * @param node         Node to query
      * @param restTemplate RestTemplate to use
      */
     public void retrieveBlockchain(Node node, RestTemplate restTemplate) {
-        var blocks = restTemplate.getForObject(node.address() + "/block", Block[].class);
-        if (blocks == null) blocks = new Block[0];
-        addAll(blockchain, blocks);
-        LOG.info("Retrieved {} blocks from node {}", blocks.length, node.address());
+        var orphaned = retrieveChain(node, restTemplate);
+        // added outside the lock, listeners of the pool may query the chain
+        transactionService.addAllAsync(orphaned).join();
     }
 
+    /**
+     * @return Transactions of the replaced Blocks which are not part of the new chain
+     */
+    private synchronized List<Transaction> retrieveChain(Node node, RestTemplate restTemplate) {
+        var height = blockStore.size();
+        var last = tip;
+        var orphaned = List.<Transaction>of();
+        var branch = new Branch(height, getLastHash());
+        if (retrieveHeaders(node, restTemplate, branch)) {
+            LOG.info("Node {} has {} blocks, retrieving {} from height {}", node.address(), height + branch.size(), branch.size(), height);
+            var retrieved = retrieveBlocks(node, restTemplate, branch, this::appendRetrieved);
+            LOG.info("Retrieved {} blocks from height {} from node {}", retrieved, height, node.address());
+        } else {
+            var fork = findFork(node, restTemplate, height);
+            branch = new Branch(fork, fork == 0 ? null : blockIndex.getHash(fork - 1));
+            if (!retrieveHeaders(node, restTemplate, branch) || branch.size() == 0) {
+                LOG.warn("Node {} has no valid chain", node.address());
+                return orphaned;
+            }
+            if (branch.getWork().compareTo(getWork(fork)) <= 0) {
+                LOG.info("Node {} has a branch of {} blocks from height {} with less work than the stored chain, keeping it",
+                        node.address(), branch.size(), fork);
+                return orphaned;
+            }
+            LOG.warn("Stored chain of {} blocks forks from node {} at height {}, retrieving its branch of {} blocks",
+                    height, node.address(), fork, branch.size());
+            orphaned = switchBranch(node, restTemplate, branch);
+        }
 
-    private boolean verify(Block block) {
-        // references last block in chain
-        if (blockchain.isEmpty()) {
-            if (block.getPreviousHash() != null) {
-                return false;
+        if (tip != null && tip != last) {
+            eventPublisher.publishEvent(new TipChangedEvent(tip, branch.getForkHeight()));
+        }
+        return orphaned;
+    }
+
+    /**
+     * Search the height from which the chain of other Node differs from the stored one, which is known to differ
+     * at the given height. Single headers are requested stepping back exponentially until one matches,
+     * then the fork is narrowed down by bisection.
+     *
+     * @param height a height at which the chains differ, at most the height of the stored chain
+     * @return height of the first Block which is not shared, 0 if not even the first Block is
+     */
+    private long findFork(Node node, RestTemplate restTemplate, long height) {
+        var shared = -1L;
+        var differ = height;
+        var step = 1L;
+        while (differ > 0) {
+            var probe = Math.max(0, differ - step);
+            if (isShared(node, restTemplate, probe)) {
+                shared = probe;
+                break;
             }
-        } else {
-            var lastBlockInChainHash = getLastHash();
-            if (!Arrays.equals(block.getPreviousHash(), lastBlockInChainHash)) {
-                return false;
+            differ = probe;
+            step *= 2;
+        }
+        // once the chains differ, all following Blocks differ as they reference their predecessor
+        while (differ - shared > 1) {
+            var probe = (shared + differ) / 2;
+            if (isShared(node, restTemplate, probe)) {
+                shared = probe;
+            } else {
+                differ = probe;
+            }
+        }
+        return differ;
+    }
+
+    private boolean isShared(Node node, RestTemplate restTemplate, long height) {
+        var header = new AtomicReference<BlockHeader>();
+        restTemplate.execute(
+                node.address() + "/block/headers?from={from}&limit=1",
+                HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(BinaryHttpMessageConverter.MEDIA_TYPE)),
+                response -> BinaryHttpMessageConverter.readEach(response.getBody(), BlockHeader.class, maxElementSize, x -> {
+                    header.set(x);
+                    return false;
+                }),
+                height);
+        return header.get() != null && Arrays.equals(header.get().hash(), blockIndex.getHash(height));
+    }
+
+    /**
+     * @return work of the stored Blocks from the given height on, every bit of difficulty doubles the work
+     */
+    private BigInteger getWork(long fromHeight) {
+        return blockStore.stream(fromHeight)
+                .map(x -> BigInteger.ONE.shiftLeft(x.getDifficulty()))
+                .reduce(BigInteger.ZERO, BigInteger::add);
+    }
+
+    /**
+     * Download all Blocks of a branch into a staging store, verifying each against the branch,
+     * and replace the stored Blocks after the fork only if every one of them is valid
+     *
+     * @return Transactions of the replaced Blocks which are not part of the branch
+     */
+    private List<Transaction> switchBranch(Node node, RestTemplate restTemplate, Branch branch) {
+        var fork = branch.getForkHeight();
+        var staging = new BlockStore(new DataDirectory(dataDirectory.resolve("staging")));
+        staging.segmentSize = blockStore.segmentSize;
+        staging.syncInterval = blockStore.syncInterval;
+        try {
+            staging.open();
+            // left over if a previous switch was interrupted
+            staging.truncate(0);
+
+            var staged = new TransactionIndex();
+            Predicate<byte[]> confirmed = hash -> staged.contains(hash)
+                    || transactionIndex.find(hash).filter(x -> x.height() < fork).isPresent();
+            var retrieved = retrieveBlocks(node, restTemplate, branch, block -> {
+                var index = (int) staging.size();
+                if (!verify(block, branch.getPreviousHash(index), getTimestamp(branch, fork + index - 1), branch.getDifficulty(index), confirmed)) {
+                    LOG.warn("Retrieved block {} failed verification", Base64.getEncoder().encodeToString(block.getHash()));
+                    return false;
+                }
+                staging.append(block);
+                staged.add(block, fork + index);
+                return true;
+            });
+            if (retrieved < branch.size()) {
+                LOG.warn("Retrieved only {} of {} blocks of the branch of node {}, keeping the stored chain", retrieved, branch.size(), node.address());
+                return List.of();
+            }
+
+            // readers see either the stored chain or the branch, never a mix of both
+            chainLock.writeLock().lock();
+            try {
+                var replaced = blockStore.stream(fork).flatMap(Block::getTransactions).collect(toList());
+                blockStore.truncate(fork);
+                blockIndex.truncate(fork);
+                transactionIndex.truncate(fork);
+                senderIndex.truncate(fork);
+                tip = fork == 0 ? null : blockStore.get(fork - 1);
+                staging.stream(0).forEach(this::store);
+                LOG.warn("Replaced {} stored blocks from height {} with {} blocks of node {}", replaced.size(), fork, retrieved, node.address());
+
+                return replaced.stream().filter(x -> !transactionIndex.contains(x.getHash())).collect(toList());
+            } finally {
+                chainLock.writeLock().unlock();
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            staging.truncate(0);
+            try {
+                staging.close();
+            } catch (IOException e) {
+                LOG.warn("Closing staging store failed", e);
+            }
+        }
+    }
+
+    /**
+     * Request pages of syncPageSize headers and add those which link to each other, fulfill the difficulty
+     * required at their height and have the proof of work, up to the first one which does not
+     *
+     * @param branch receives the valid headers, its last hash has to be referenced by the first header
+     * @return false if the first header does not reference the last hash of the branch
+     */
+    private boolean retrieveHeaders(Node node, RestTemplate restTemplate, Branch branch) {
+        var linked = new AtomicBoolean(true);
+        while (true) {
+            var page = restTemplate.execute(
+                    node.address() + "/block/headers?from={from}&limit={limit}",
+                    HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(BinaryHttpMessageConverter.MEDIA_TYPE)),
+                    response -> BinaryHttpMessageConverter.readEach(response.getBody(), BlockHeader.class, maxElementSize, header -> {
+                        if (!Arrays.equals(header.previousHash(), branch.getLastHash())) {
+                            linked.set(branch.size() > 0);
+                            return false;
+                        }
+                        if (header.version() != HeaderEncoder.VERSION
+                                || !verifyTimestamp(header.timestamp(), getTimestamp(branch, branch.getForkHeight() + branch.size() - 1))
+                                || !Arrays.equals(header.hash(), header.calculateHash())
+                                || header.difficulty() != getDifficulty(branch)
+                                || ProofOfWork.getLeadingZeroBits(header.hash()) < header.difficulty()) {
+                            LOG.warn("Header {} of node {} is invalid", Base64.getEncoder().encodeToString(header.hash()), node.address());
+                            return false;
+                        }
+                        branch.add(header);
+                        return true;
+                    }),
+                    branch.getForkHeight() + branch.size(), syncPageSize);
+            if (page == null || page < syncPageSize) return linked.get();
+        }
+    }
+
+    /**
+     * Request the Blocks of a branch in pages of syncPageSize and pass each Block to action as soon as it is decoded,
+     * so memory use does not depend on the length of the chain
+     *
+     * @param action called with every Block matching its header, returning false stops retrieving
+     * @return number of Blocks accepted by action, less than the branch if one of them did not match its header or was rejected
+     */
+    private long retrieveBlocks(Node node, RestTemplate restTemplate, Branch branch, Predicate<Block> action) {
+        var retrieved = new AtomicInteger();
+        while (retrieved.get() < branch.size()) {
+            var limit = Math.min(syncPageSize, branch.size() - retrieved.get());
+            var page = restTemplate.execute(
+                    node.address() + "/block?fromHeight={fromHeight}&limit={limit}",
+                    HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(BinaryHttpMessageConverter.MEDIA_TYPE)),
+                    response -> BinaryHttpMessageConverter.readEach(response.getBody(), Block.class, maxElementSize, block -> {
+                        var index = retrieved.get();
+                        if (index >= branch.size() || !Arrays.equals(block.getHash(), branch.getHash(index)) || !action.test(block)) {
+                            return false;
+                        }
+                        retrieved.incrementAndGet();
+                        return true;
+                    }),
+                    branch.getForkHeight() + retrieved.get(), limit);
+            if (page == null || page < limit) break;
         }
+        return retrieved.get();
+    }
 
-        // correct hashes
-        if (!Arrays.equals(block.getMerkleRoot(), block.calculateMerkleRoot())) {
+    private boolean appendRetrieved(Block block) {
+        if (!verify(block)) {
+            LOG.warn("Retrieved block {} failed verification", Base64.getEncoder().encodeToString(block.getHash()));
             return false;
         }
+        store(block);
+        return true;
+    }
+
+    /**
+     * Append a verified Block to the store and indexes and remove its Transactions from the pool
+     */
+    private void store(Block block) {
+        chainLock.writeLock().lock();
+        try {
+            blockStore.append(block);
+            index(block);
+            tip = block;
+        } finally {
+            chainLock.writeLock().unlock();
+        }
+        block.getTransactions().forEach(transactionService::remove);
+    }
+
+    private void index(Block block) {
+        var height = blockIndex.size();
+        transactionIndex.add(block, height);
+        senderIndex.add(block, height);
+        blockIndex.add(block.getHash());
+    }
+
+    /**
+     * @param expected tells whether the Transaction at the location is the one looked up
+     * @return confirmed state of the Transaction, empty if the location points to another one
+     */
+    private static Optional<TransactionStatus> toStatus(Block block, TransactionLocation location, Predicate<Transaction> expected) {
+        return block.getTransactions().skip(location.position()).findFirst()
+                .filter(expected)
+                .map(transaction -> new TransactionStatus(
+                        transaction,
+                        true,
+                        block.getHash(),
+                        location.height(),
+                        location.position()
+                ));
+    }
+
+    private boolean verify(Block block) {
+        var last = tip;
+        return last == null
+                ? verify(block, null, Long.MIN_VALUE, getDifficulty(), transactionIndex::contains)
+                : verify(block, last.getHash(), last.getTimestamp(), getDifficulty(), transactionIndex::contains);
+    }
+
+    /**
+     * @param previousHash      hash of the Block the Block has to reference, null for the first Block
+     * @param previousTimestamp timestamp of the Block the Block continues, Long.MIN_VALUE for the first Block
+     * @param difficulty        required number of leading zero bits
+     * @param confirmed         tells whether a Transaction hash is already in the chain the Block continues
+     */
+    private boolean verify(Block block, byte[] previousHash, long previousTimestamp, int difficulty, Predicate<byte[]> confirmed) {
+        // only Blocks already in the stored chain may have the legacy version
+        if (block.getVersion() != HeaderEncoder.VERSION) {
+            return false;
+        }
+
+        // references last block in chain
+        if (!Arrays.equals(block.getPreviousHash(), previousHash)) {
+            return false;
+        }
+
+        // dated after the last block in chain and not in the future
+        if (!verifyTimestamp(block.getTimestamp(), previousTimestamp)) {
+            return false;
+        }
+
+        // correct hashes, the merkle root is already built from the transactions when the Block is constructed
         if (!Arrays.equals(block.getHash(), block.calculateHash())) {
             return false;
         }
 
+        // considered difficulty, checked before any Transaction so a Block without proof of work costs one hash
+        if (block.getDifficulty() != difficulty || ProofOfWork.getLeadingZeroBits(block) < block.getDifficulty()) {
+            return false;
+        }
+
         // transaction limit
         if (block.getTransactions().count() > maxTransactionsPerBlock) {
             return false;
         }
 
-        // all transactions in pool
-        if (!transactionService.containsAll(block.getTransactions())) {
+        // no transaction included twice
+        var transactions = block.getTransactions().collect(toList());
+        var hashes = transactions.stream().map(x -> new HashKey(x.getHash())).collect(toSet());
+        if (hashes.size() != transactions.size() || hashes.stream().anyMatch(x -> confirmed.test(x.hash()))) {
             return false;
         }
 
-        // considered difficulty
-        return ProofOfWork.getLeadingZerosCount(block) >= difficulty;
+        // all transactions valid, the ones verified before are not checked again
+        return transactionVerifier.verifyAll(transactions).stream().allMatch(CompletableFuture::join);
+    }
+
+    /**
+     * A Block has to be dated after the Block it continues, so the retarget cannot be lowered by dating Blocks back,
+     * and at most maxClockDrift ahead of the own clock, so it cannot be lowered by dating Blocks forward either
+     */
+    private boolean verifyTimestamp(long timestamp, long previousTimestamp) {
+        return timestamp > previousTimestamp && timestamp <= clock.millis() + maxClockDrift;
     }
 }
@@ -0,0 +1,406 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.BinaryCodec;
+import de.neozo.jblockchain.common.domain.Block;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Append-only storage of the chain on disk, Blocks are addressed by their height starting at 0.
+ * <p>
+ * Blocks are written to segment files named after the height of their first Block. A segment is closed once it
+ * exceeds the configured size and a new one is started. Every Block is stored as one record of
+ * <pre>
+ * length  field
+ *      4  length n of the encoded Block
+ *      4  CRC32C of the encoded Block
+ *      n  Block encoded by BinaryCodec
+ * </pre>
+ * Writes are forced to disk in the background every syncInterval milliseconds instead of once per Block.
+ * After a crash a torn or corrupt record at the end is truncated when opening the store, together with everything
+ * behind it. Reads go through memory-mapped segments, only the offsets of the records are kept on the heap.
+ * Blocks are decoded while holding the read lock, so a truncate shrinking the file never pulls
+ * the mapped pages from under a reader. Forcing to disk holds neither lock, readers and appends go on meanwhile.
+ */
+@Repository
+public class BlockStore {
+
+    private final static Logger LOG = LoggerFactory.getLogger(BlockStore.class);
+
+    private static final int RECORD_HEADER_LENGTH = 8;
+
+    private static final String SEGMENT_SUFFIX = ".blocks";
+
+    /**
+     * Size in bytes after which a new segment file is started
+     */
+    @Value("${block-segment-size}")
+    public long segmentSize;
+
+    /**
+     * Maximum time in milliseconds appended Blocks may stay unsynced
+     */
+    @Value("${block-sync-interval}")
+    public long syncInterval;
+
+    private final Path directory;
+
+    /**
+     * Segments ordered by height, only the last one is appended to
+     */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * Shared by readers, held exclusively by everything changing the segments
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Held while forcing a segment to disk and by truncate and close, so the forced channel is not truncated or closed
+     * meanwhile, taken before lock
+     */
+    private final Lock syncLock = new ReentrantLock();
+
+    private long size;
+
+    /**
+     * Whether Blocks were appended since the last sync, set under the write lock and cleared under syncLock
+     */
+    private volatile boolean dirty;
+
+    private ScheduledExecutorService syncer;
+
+    @Autowired
+    public BlockStore(DataDirectory dataDirectory) {
+        this.directory = dataDirectory.resolve("blocks");
+    }
+
+    /**
+     * Open all segments, truncating a torn record at the end of chain
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        lock.writeLock().lock();
+        try {
+            openSegments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "block-store-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void openSegments() throws IOException {
+        List<Path> files;
+        try (var list = Files.list(directory)) {
+            files = list.filter(x -> x.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().collect(toList());
+        }
+        for (var i = 0; i < files.size(); i++) {
+            var file = files.get(i);
+            if (Long.parseLong(file.getFileName().toString().replace(SEGMENT_SUFFIX, "")) != size) {
+                LOG.warn("Segment {} does not continue at height {}, discarding it and all following", file, size);
+                discard(files.subList(i, files.size()));
+                break;
+            }
+            var segment = new Segment(file, size);
+            segments.add(segment);
+            var truncated = segment.recover();
+            size += segment.count;
+            if (truncated) {
+                discard(files.subList(i + 1, files.size()));
+                break;
+            }
+        }
+        LOG.info("Opened block store with {} blocks in {} segments", size, segments.size());
+    }
+
+    /**
+     * Force pending writes to disk and close all segments
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (syncer != null) syncer.shutdown();
+        sync();
+        syncLock.lock();
+        lock.writeLock().lock();
+        try {
+            for (var segment : segments) segment.channel.close();
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * @return number of Blocks in store
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Append a Block at the end, it is written to disk within syncInterval
+     *
+     * @param block Block to append
+     */
+    public void append(Block block) {
+        var length = BinaryCodec.getLength(block);
+        var record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + length);
+        BinaryCodec.write(record.position(RECORD_HEADER_LENGTH), block);
+        var crc = new CRC32C();
+        crc.update(record.array(), RECORD_HEADER_LENGTH, length);
+        record.putInt(0, length).putInt(Integer.BYTES, (int) crc.getValue());
+
+        lock.writeLock().lock();
+        try {
+            var segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || (segment.count > 0 && segment.length + record.capacity() > segmentSize)) {
+                if (segment != null) segment.channel.force(false);
+                segment = new Segment(directory.resolve(String.format("%020d%s", size, SEGMENT_SUFFIX)), size);
+                segments.add(segment);
+            }
+            segment.append(record);
+            size++;
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Read a Block
+     *
+     * @param height position of the Block in chain
+     * @return the decoded Block
+     */
+    public Block get(long height) {
+        lock.readLock().lock();
+        try {
+            if (height < 0 || height >= size) throw new IndexOutOfBoundsException("Height " + height);
+            var segment = segments.get(findSegment(height));
+            return BinaryCodec.readBlock(segment.read((int) (height - segment.firstHeight)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param from height of the first Block
+     * @return all Blocks from the given height up to the current end, read lazily
+     */
+    public Stream<Block> stream(long from) {
+        return LongStream.range(from, size()).mapToObj(this::get);
+    }
+
+    /**
+     * Remove all Blocks from the given height on
+     *
+     * @param height number of Blocks to keep
+     */
+    public void truncate(long height) {
+        syncLock.lock();
+        lock.writeLock().lock();
+        try {
+            if (height < 0 || height >= size) return;
+            while (!segments.isEmpty() && segments.get(segments.size() - 1).firstHeight >= height) {
+                segments.remove(segments.size() - 1).delete();
+            }
+            if (!segments.isEmpty()) {
+                var segment = segments.get(segments.size() - 1);
+                segment.truncate((int) (height - segment.firstHeight));
+                segment.channel.force(false);
+            }
+            size = height;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Force appended Blocks to disk
+     */
+    public void sync() {
+        syncLock.lock();
+        try {
+            FileChannel channel;
+            lock.readLock().lock();
+            try {
+                if (!dirty || segments.isEmpty()) return;
+                channel = segments.get(segments.size() - 1).channel;
+                // cleared before forcing, Blocks appended meanwhile are forced by the next sync
+                dirty = false;
+            } finally {
+                lock.readLock().unlock();
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            dirty = true;
+            LOG.error("Syncing block store failed", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private int findSegment(long height) {
+        int low = 0, high = segments.size() - 1;
+        while (low < high) {
+            var middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).firstHeight <= height) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    private void discard(List<Path> files) throws IOException {
+        for (var file : files) Files.delete(file);
+    }
+
+    /**
+     * One segment file with the offsets of its records
+     */
+    private static final class Segment {
+        private final Path path;
+        private final long firstHeight;
+        private final FileChannel channel;
+        private long length;
+        private long[] offsets = new long[64];
+        private int count;
+
+        /**
+         * Mapping of the file, remapped when a record behind its end is read.
+         * Readers may remap concurrently, each mapping stays valid until the next truncate.
+         */
+        private volatile MappedByteBuffer map;
+
+        private Segment(Path path, long firstHeight) throws IOException {
+            this.path = path;
+            this.firstHeight = firstHeight;
+            this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+            this.length = channel.size();
+        }
+
+        /**
+         * Index all complete records and truncate the file behind the last one
+         *
+         * @return true if the file was truncated
+         */
+        private boolean recover() throws IOException {
+            count = 0;
+            var position = 0L;
+            if (length > 0) {
+                var data = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                var crc = new CRC32C();
+                while (length - position >= RECORD_HEADER_LENGTH) {
+                    var recordLength = data.getInt((int) position);
+                    var checksum = data.getInt((int) position + Integer.BYTES);
+                    if (recordLength < 0 || length - position - RECORD_HEADER_LENGTH < recordLength) break;
+
+                    crc.reset();
+                    crc.update(data.slice((int) position + RECORD_HEADER_LENGTH, recordLength));
+                    if ((int) crc.getValue() != checksum) break;
+
+                    addOffset(position);
+                    position += RECORD_HEADER_LENGTH + recordLength;
+                }
+            }
+            if (position == length) return false;
+
+            LOG.warn("Truncating torn record at offset {} of segment {}", position, path);
+            channel.truncate(position);
+            channel.force(false);
+            length = position;
+            map = null;
+            return true;
+        }
+
+        private void append(ByteBuffer record) throws IOException {
+            var position = length;
+            record.rewind();
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            addOffset(length);
+            length = position;
+        }
+
+        private ByteBuffer read(int index) {
+            var offset = offsets[index];
+            var end = index + 1 < count ? offsets[index + 1] : length;
+            var current = map;
+            if (current == null || current.capacity() < end) {
+                try {
+                    current = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                map = current;
+            }
+            return current.slice((int) offset + RECORD_HEADER_LENGTH, (int) (end - offset) - RECORD_HEADER_LENGTH);
+        }
+
+        private void truncate(int count) throws IOException {
+            this.count = count;
+            length = offsets[count];
+            channel.truncate(length);
+            map = null;
+        }
+
+        private void delete() throws IOException {
+            channel.close();
+            Files.delete(path);
+        }
+
+        private void addOffset(long offset) {
+            if (count == offsets.length) offsets = Arrays.copyOf(offsets, 2 * count);
+            offsets[count++] = offset;
+        }
+    }
+}
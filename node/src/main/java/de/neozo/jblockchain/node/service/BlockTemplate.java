@@ -0,0 +1,126 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.MerkleTree;
+import de.neozo.jblockchain.common.domain.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Transactions the miner puts into its next Block, maintained incrementally while the pool changes.
+ * <p>
+ * The template holds the oldest Transactions of the pool, up to the maximum per Block. Younger Transactions wait
+ * as candidates ordered by arrival. When a Transaction in the template is removed, the oldest candidate takes over
+ * its slot, so only the path of that slot in the merkle tree is rehashed instead of the whole tree.
+ */
+class BlockTemplate {
+
+    private final int capacity;
+
+    /**
+     * Transactions in the template by slot, the leaves of merkleTree are their hashes in the same order
+     */
+    private final List<Transaction> slots = new ArrayList<>();
+    private final MerkleTree merkleTree = new MerkleTree(List.of());
+
+    /**
+     * Transactions waiting for a free slot, keyed by arrival
+     */
+    private final TreeMap<Long, Transaction> candidates = new TreeMap<>();
+
+    /**
+     * Slot index for Transactions in the template, arrival for candidates
+     */
+    private final Map<HashKey, Integer> slotByHash = new HashMap<>();
+    private final Map<HashKey, Long> arrivalByHash = new HashMap<>();
+
+    private long arrival;
+
+    /**
+     * @param capacity maximum number of Transactions in the template
+     */
+    BlockTemplate(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add a Transaction to the template if it has a free slot, otherwise queue it as candidate
+     *
+     * @param transaction Transaction added to the pool
+     * @return true if the Transactions in the template changed
+     */
+    synchronized boolean add(Transaction transaction) {
+        var key = new HashKey(transaction.getHash());
+        if (slotByHash.containsKey(key) || arrivalByHash.containsKey(key)) return false;
+
+        if (slots.size() < capacity) {
+            slotByHash.put(key, slots.size());
+            slots.add(transaction);
+            merkleTree.append(transaction.getHash());
+            return true;
+        }
+        arrivalByHash.put(key, arrival);
+        candidates.put(arrival++, transaction);
+        return false;
+    }
+
+    /**
+     * Remove a Transaction, refilling its slot with the oldest candidate or with the last slot if there is none
+     *
+     * @param transaction Transaction removed from the pool
+     * @return true if the Transactions in the template changed
+     */
+    synchronized boolean remove(Transaction transaction) {
+        var key = new HashKey(transaction.getHash());
+        var waiting = arrivalByHash.remove(key);
+        if (waiting != null) {
+            candidates.remove(waiting);
+            return false;
+        }
+
+        Integer slot = slotByHash.remove(key);
+        if (slot == null) return false;
+
+        var next = candidates.pollFirstEntry();
+        if (next != null) {
+            var candidate = next.getValue();
+            arrivalByHash.remove(new HashKey(candidate.getHash()));
+            fill(slot, candidate);
+        } else {
+            var last = slots.remove(slots.size() - 1);
+            merkleTree.removeLast();
+            if (slot < slots.size()) fill(slot, last);
+        }
+        return true;
+    }
+
+    /**
+     * @return copy of the Transactions in the template together with their merkle root
+     */
+    synchronized Snapshot snapshot() {
+        return new Snapshot(List.copyOf(slots), merkleTree.getRoot());
+    }
+
+    synchronized boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    private void fill(int slot, Transaction transaction) {
+        slots.set(slot, transaction);
+        slotByHash.put(new HashKey(transaction.getHash()), slot);
+        merkleTree.set(slot, transaction.getHash());
+    }
+
+    /**
+     * Consistent view on the template at one point in time
+     *
+     * @param transactions Transactions in slot order
+     * @param merkleRoot   merkle root over the hashes of these Transactions
+     */
+    record Snapshot(List<Transaction> transactions, byte[] merkleRoot) {
+    }
+}
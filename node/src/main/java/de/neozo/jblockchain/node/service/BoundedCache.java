@@ -0,0 +1,49 @@
+package de.neozo.jblockchain.node.service;
+
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Thread-safe cache holding at most capacity entries.
+ * When full, the entries added first are evicted first.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+class BoundedCache<K, V> {
+
+    private final int capacity;
+
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Keys in order of insertion, to determine which entries to evict
+     */
+    private final Queue<K> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    BoundedCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    V get(K key) {
+        return entries.get(key);
+    }
+
+    boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    void put(K key, V value) {
+        if (entries.put(key, value) != null) return;
+
+        insertionOrder.offer(key);
+        while (entries.size() > capacity) {
+            var eldest = insertionOrder.poll();
+            if (eldest == null) break;
+            entries.remove(eldest);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.BlockHeader;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Headers of a chain of other Node from the height on where it forks from the stored chain.
+ * Only what is needed to check the following headers and download the Blocks is kept:
+ * the hashes in a HashIndex, timestamps and difficulties in primitive arrays, and the total work.
+ */
+class Branch {
+
+    private final long forkHeight;
+
+    private final byte[] previousHash;
+
+    private final HashIndex hashes = new HashIndex();
+
+    private long[] timestamps = new long[1024];
+
+    private int[] difficulties = new int[1024];
+
+    private BigInteger work = BigInteger.ZERO;
+
+    /**
+     * @param forkHeight   height of the first Block of the branch
+     * @param previousHash hash of the stored Block the branch builds on, null if it starts with the first Block
+     */
+    Branch(long forkHeight, byte[] previousHash) {
+        this.forkHeight = forkHeight;
+        this.previousHash = previousHash;
+    }
+
+    long getForkHeight() {
+        return forkHeight;
+    }
+
+    /**
+     * @return number of headers in the branch
+     */
+    int size() {
+        return (int) hashes.size();
+    }
+
+    /**
+     * @return hash the next header has to reference
+     */
+    byte[] getLastHash() {
+        return size() == 0 ? previousHash : hashes.getHash(size() - 1);
+    }
+
+    /**
+     * @param index position of the header in the branch, starting at 0 for the fork height
+     * @return hash the header at the given position references
+     */
+    byte[] getPreviousHash(int index) {
+        return index == 0 ? previousHash : hashes.getHash(index - 1);
+    }
+
+    byte[] getHash(int index) {
+        return hashes.getHash(index);
+    }
+
+    long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    int getDifficulty(int index) {
+        return difficulties[index];
+    }
+
+    /**
+     * @return sum of the work of all headers, every bit of difficulty doubles the work
+     */
+    BigInteger getWork() {
+        return work;
+    }
+
+    /**
+     * Append a header which was checked to continue the branch
+     *
+     * @param header the next header
+     */
+    void add(BlockHeader header) {
+        var index = size();
+        if (index == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, 2 * index);
+            difficulties = Arrays.copyOf(difficulties, 2 * index);
+        }
+        timestamps[index] = header.timestamp();
+        difficulties[index] = header.difficulty();
+        work = work.add(BigInteger.ONE.shiftLeft(header.difficulty()));
+        hashes.add(header.hash());
+    }
+}
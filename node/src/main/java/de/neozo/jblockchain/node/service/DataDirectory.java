@@ -0,0 +1,41 @@
+package de.neozo.jblockchain.node.service;
+
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Directory holding all data this Node persists, every store gets its own subdirectory
+ */
+@Component
+public class DataDirectory {
+
+    private final Path root;
+
+    @Autowired
+    public DataDirectory(@Value("${data-directory}") Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Determine the directory of a store, creating it if necessary
+     *
+     * @param name name of the subdirectory
+     * @return path of the subdirectory
+     */
+    public Path resolve(String name) {
+        var directory = root.resolve(name);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return directory;
+    }
+}
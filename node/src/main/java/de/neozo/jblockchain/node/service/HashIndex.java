@@ -0,0 +1,195 @@
+package de.neozo.jblockchain.node.service;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static de.neozo.jblockchain.common.Hashes.LENGTH;
+
+/**
+ * Index of hashes numbered in the order they were added, without creating objects per entry.
+ * Used to find Blocks by hash, where the number is the height, and Transactions in chain.
+ * <p>
+ * The hashes are kept in segments of fixed size ordered by number, so no single array has to hold all of them.
+ * An open addressing table maps the first 8 bytes of a hash to the number plus one, 0 marks a free slot.
+ * Collisions are resolved by linear probing and comparing the full hash, removed slots are refilled by shifting
+ * the following entries of the probe sequence back, so removing costs no tombstones and no rehash.
+ * The table is one array at most half full, which limits the index to MAX_SIZE hashes.
+ */
+class HashIndex {
+
+    /**
+     * Largest number of hashes, the table then has the largest power of two length an array can have
+     */
+    static final long MAX_SIZE = 1L << 29;
+
+    private static final int SEGMENT_BITS = 16;
+
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private static final int INITIAL_SEGMENT_LENGTH = 1024 * LENGTH;
+
+    private byte[][] segments = new byte[1][];
+
+    private long[] table = new long[2048];
+
+    private long size;
+
+    /**
+     * @return number of indexed hashes
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Index the next hash
+     *
+     * @param hash hash which gets the number size()
+     * @throws IllegalStateException if MAX_SIZE hashes are indexed already
+     */
+    synchronized void add(byte[] hash) {
+        if (size >= MAX_SIZE) throw new IllegalStateException("Index is limited to " + MAX_SIZE + " hashes");
+
+        System.arraycopy(hash, 0, allocate(size), offset(size), LENGTH);
+        size++;
+        if (2 * size > table.length) {
+            rehash(2 * table.length);
+        } else {
+            insert(table, size - 1);
+        }
+    }
+
+    /**
+     * Find the number of a hash
+     *
+     * @param hash hash to look for
+     * @return number of the hash, -1 if it is not indexed
+     */
+    synchronized long find(byte[] hash) {
+        if (hash.length != LENGTH) return -1;
+
+        var mask = table.length - 1;
+        for (var slot = slot(hash, 0, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+            var number = table[slot] - 1;
+            var offset = offset(number);
+            if (Arrays.equals(segment(number), offset, offset + LENGTH, hash, 0, LENGTH)) return number;
+        }
+        return -1;
+    }
+
+    /**
+     * @param number position of the hash
+     * @return the hash with that number
+     */
+    synchronized byte[] getHash(long number) {
+        if (number < 0 || number >= size) throw new IndexOutOfBoundsException("Number " + number);
+        var offset = offset(number);
+        return Arrays.copyOfRange(segment(number), offset, offset + LENGTH);
+    }
+
+    /**
+     * Remove all hashes from the given number on, in time proportional to the number of removed hashes
+     *
+     * @param number number of hashes to keep
+     */
+    synchronized void truncate(long number) {
+        if (number < 0 || number >= size) return;
+        // newest first, the hashes stay in their segments until they are overwritten by add()
+        while (size > number) remove(--size);
+    }
+
+    /**
+     * Write all hashes in order of their numbers
+     *
+     * @param output stream to write to
+     */
+    synchronized void write(DataOutput output) throws IOException {
+        output.writeLong(size);
+        for (var number = 0L; number < size; number++) output.write(segment(number), offset(number), LENGTH);
+    }
+
+    /**
+     * Add all hashes written by write()
+     *
+     * @param input stream to read from
+     * @throws IOException if the stream ends early or tells an invalid number of hashes
+     */
+    synchronized void read(DataInput input) throws IOException {
+        var count = input.readLong();
+        if (count < 0 || size + count > MAX_SIZE) throw new IOException("Invalid number of hashes " + count);
+
+        var hash = new byte[LENGTH];
+        for (var i = 0L; i < count; i++) {
+            input.readFully(hash);
+            add(hash);
+        }
+    }
+
+    /**
+     * @return the segment to hold the hash with the given number, grown if needed
+     */
+    private byte[] allocate(long number) {
+        var index = (int) (number >>> SEGMENT_BITS);
+        if (index == segments.length) segments = Arrays.copyOf(segments, 2 * segments.length);
+
+        var segment = segments[index];
+        if (segment == null) {
+            segment = new byte[INITIAL_SEGMENT_LENGTH];
+        } else if (offset(number) == segment.length) {
+            segment = Arrays.copyOf(segment, 2 * segment.length);
+        }
+        return segments[index] = segment;
+    }
+
+    private byte[] segment(long number) {
+        return segments[(int) (number >>> SEGMENT_BITS)];
+    }
+
+    private static int offset(long number) {
+        return (int) (number & SEGMENT_MASK) * LENGTH;
+    }
+
+    private void rehash(int capacity) {
+        var rehashed = new long[capacity];
+        for (var number = 0L; number < size; number++) insert(rehashed, number);
+        table = rehashed;
+    }
+
+    private void insert(long[] target, long number) {
+        var mask = target.length - 1;
+        var slot = slot(segment(number), offset(number), mask);
+        while (target[slot] != 0) slot = (slot + 1) & mask;
+        target[slot] = number + 1;
+    }
+
+    /**
+     * Free the slot of a hash by backward shift deletion: following entries of the probe sequence move into the free
+     * slot unless their own slot lies after it, so a lookup never stops early at a freed slot
+     */
+    private void remove(long number) {
+        var mask = table.length - 1;
+        var free = slot(segment(number), offset(number), mask);
+        while (table[free] != number + 1) free = (free + 1) & mask;
+
+        for (var next = (free + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            var entry = table[next] - 1;
+            var home = slot(segment(entry), offset(entry), mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                table[free] = table[next];
+                free = next;
+            }
+        }
+        table[free] = 0;
+    }
+    /**
+     * The hash is already uniformly distributed, so its first bytes are used as is
+     */
+    private static int slot(byte[] hash, int offset, int mask) {
+        var key = 0L;
+        for (var i = 0; i < Long.BYTES; i++) key = (key << Byte.SIZE) | (hash[offset + i] & 0xff);
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,31 @@
+package de.neozo.jblockchain.node.service;
+
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Raw hash usable as key in maps, without encoding it as String first
+ *
+ * @param hash the raw hash, must not be modified afterwards
+ */
+public record HashKey(byte[] hash) {
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return Arrays.equals(hash, ((HashKey) o).hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return Base64.getEncoder().encodeToString(hash);
+    }
+}
@@ -0,0 +1,134 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.Hashes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Checkpoint of the chain indexes on disk, so a restarted Node only has to index the Blocks appended afterwards.
+ * <p>
+ * The checkpoint is one file, replaced atomically:
+ * <pre>
+ * length  field
+ *      4  magic number
+ *      4  format version
+ *      8  chain height covered by the indexes
+ *     32  hash of the last Block covered
+ *      n  block index, transaction index and sender index
+ *      4  CRC32C of everything before
+ * </pre>
+ */
+@Repository
+public class IndexStore {
+
+    private final static Logger LOG = LoggerFactory.getLogger(IndexStore.class);
+
+    private static final int MAGIC = 0x4a42494e;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+
+    @Autowired
+    public IndexStore(DataDirectory dataDirectory) {
+        this.file = dataDirectory.resolve("index").resolve("index.bin");
+    }
+
+    /**
+     * Write a checkpoint of the indexes, replacing the previous one
+     *
+     * @param lastHash hash of the last Block covered by the indexes
+     */
+    void write(byte[] lastHash, HashIndex blockIndex, TransactionIndex transactionIndex, SenderIndex senderIndex) {
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        var crc = new CRC32C();
+        try (var channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            var output = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), crc));
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(blockIndex.size());
+            output.write(lastHash);
+            blockIndex.write(output);
+            transactionIndex.write(output);
+            senderIndex.write(output);
+            output.writeInt((int) crc.getValue());
+            output.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            LOG.error("Writing indexes failed", e);
+            return;
+        }
+        try {
+            Files.move(temporary, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.error("Replacing indexes failed", e);
+            return;
+        }
+        LOG.info("Wrote indexes at height {}", blockIndex.size());
+    }
+
+    /**
+     * Read the last checkpoint, if it is valid and belongs to the stored chain
+     *
+     * @param height number of stored Blocks
+     * @param hashes hash of the stored Block at a given height
+     * @return the restored indexes, null if there was no usable checkpoint
+     */
+    Checkpoint read(long height, LongFunction<byte[]> hashes) {
+        if (!Files.exists(file)) return null;
+
+        var crc = new CRC32C();
+        try (var input = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) throw new IOException("Unknown format");
+
+            var indexed = input.readLong();
+            var lastHash = new byte[Hashes.LENGTH];
+            input.readFully(lastHash);
+            if (indexed <= 0 || indexed > height || !Arrays.equals(lastHash, hashes.apply(indexed - 1))) {
+                LOG.warn("Indexes at height {} do not match the stored chain of {} blocks", indexed, height);
+                return null;
+            }
+
+            var checkpoint = new Checkpoint(new HashIndex(), new TransactionIndex(), new SenderIndex());
+            checkpoint.blockIndex().read(input);
+            checkpoint.transactionIndex().read(input);
+            checkpoint.senderIndex().read(input);
+            var checksum = (int) crc.getValue();
+            if (input.readInt() != checksum || checkpoint.blockIndex().size() != indexed) throw new IOException("Checksum mismatch");
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Ignoring invalid indexes {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Indexes restored from a checkpoint, covering the Blocks up to the size of blockIndex
+     */
+    record Checkpoint(HashIndex blockIndex, TransactionIndex transactionIndex, SenderIndex senderIndex) {
+    }
+}
@@ -1,49 +1,108 @@
 package de.neozo.jblockchain.node.service;
 
 
+import de.neozo.jblockchain.common.BlockHeaderHasher;
 import de.neozo.jblockchain.common.domain.Block;
-import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.common.domain.TransactionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.time.Clock;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Stream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 
-import static de.neozo.jblockchain.node.service.ProofOfWork.getLeadingZerosCount;
-import static java.util.stream.Collectors.toList;
+import static de.neozo.jblockchain.node.service.ProofOfWork.getLeadingZeroBits;
 
 @Service
 public class MiningService implements Runnable {
 
     private final static Logger LOG = LoggerFactory.getLogger(MiningService.class);
 
-    @Value("${difficulty}")
-    public int difficulty;
-
     @Value("${max-transactions-per-block}")
     public int maxTransactionsPerBlock;
 
+    /**
+     * Number of worker threads searching the nonce space, 0 means one per available processor
+     */
+    @Value("${mining-threads:0}")
+    public int miningThreads;
+
     private final TransactionService transactionService;
+    private final TransactionVerifier transactionVerifier;
     private final NodeService nodeService;
     private final BlockService blockService;
 
     private final AtomicBoolean runMiner = new AtomicBoolean(false);
     private final Clock clock;
 
+    /**
+     * Signalled when Transactions were added to the pool or the miner is stopped
+     */
+    private final Lock lock = new ReentrantLock();
+    private final Condition wakeup = lock.newCondition();
+
+    /**
+     * Time spent on rounds which were given up because another Block became the last in chain
+     */
+    private final Timer staleWork;
+
+    /**
+     * Transactions for the next Block, created once the maximum per Block is injected
+     */
+    private BlockTemplate template;
+    private final Counter templateChurn;
+    private final Timer templateUpdate;
+
+    /**
+     * The round the workers are currently searching in, null if there is none
+     */
+    private volatile Round round;
+
 
     @Autowired
-    public MiningService(TransactionService transactionService, NodeService nodeService, BlockService blockService, Clock clock) {
+    public MiningService(TransactionService transactionService, TransactionVerifier transactionVerifier, NodeService nodeService, BlockService blockService, Clock clock, MeterRegistry meterRegistry) {
         this.transactionService = transactionService;
+        this.transactionVerifier = transactionVerifier;
         this.nodeService = nodeService;
         this.blockService = blockService;
         this.clock = clock;
+        this.staleWork = Timer.builder("miner.stale.work")
+                .description("Time spent mining on a chain tip which was replaced meanwhile")
+                .register(meterRegistry);
+        this.templateChurn = Counter.builder("miner.template.churn")
+                .description("Changes to the Transactions in the block template")
+                .register(meterRegistry);
+        this.templateUpdate = Timer.builder("miner.template.update")
+                .description("Time spent updating the block template when the pool changed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fill the template in order of addition, so the oldest Transactions of a restored pool are mined first
+     */
+    @PostConstruct
+    public void createTemplate() {
+        template = new BlockTemplate(maxTransactionsPerBlock);
+        transactionService.getTransactionPoolInOrder().forEach(template::add);
     }
 
     /**
@@ -51,18 +110,59 @@ public class MiningService implements Runnable {
      */
     public void startMiner() {
         if (runMiner.compareAndSet(false, true)) {
-            LOG.info("Starting miner");
-            Thread thread = new Thread(this);
+            LOG.info("Starting miner with {} workers", getWorkerCount());
+            Thread thread = new Thread(this, "miner");
             thread.start();
         }
     }
 
     /**
-     * Stop the miner after next iteration
+     * Stop the miner, all workers give up their current search and a waiting miner returns immediately
      */
     public void stopMiner() {
         LOG.info("Stopping miner");
         runMiner.set(false);
+        signalWakeup();
+    }
+
+    /**
+     * Add the Transaction to the block template and wake up the miner if it is waiting for Transactions
+     *
+     * @param event the TransactionAddedEvent published by TransactionService
+     */
+    @EventListener
+    public void onTransactionAdded(TransactionAddedEvent event) {
+        var start = System.nanoTime();
+        if (template.add(event.transaction())) templateChurn.increment();
+        templateUpdate.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        signalWakeup();
+    }
+
+    /**
+     * Remove the Transaction from the block template, refilling its slot from the remaining pool
+     *
+     * @param event the TransactionRemovedEvent published by TransactionService
+     */
+    @EventListener
+    public void onTransactionRemoved(TransactionRemovedEvent event) {
+        var start = System.nanoTime();
+        if (template.remove(event.transaction())) templateChurn.increment();
+        templateUpdate.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Give up the current round if it does not build on the new last Block,
+     * the miner continues with the remaining Transactions in pool on top of it
+     *
+     * @param event the TipChangedEvent published by BlockService
+     */
+    @EventListener
+    public void onTipChanged(TipChangedEvent event) {
+        var current = round;
+        if (current != null && !Arrays.equals(current.previousHash, event.tip().getHash())) {
+            current.stale = true;
+            current.finished.set(true);
+        }
     }
 
     /**
@@ -70,42 +170,152 @@ public class MiningService implements Runnable {
      */
     @Override
     public void run() {
+        var workers = Executors.newFixedThreadPool(getWorkerCount(), runnable -> {
+            var worker = new Thread(runnable, "miner-worker");
+            worker.setDaemon(true);
+            return worker;
+        });
         while (runMiner.get()) {
-            var transactions = transactionService.getTransactionPool()
-                    .limit(maxTransactionsPerBlock).collect(toList());
+            var snapshot = template.snapshot();
 
-            if (!transactions.isEmpty()) {
-                mine(transactions)
+            if (!snapshot.transactions().isEmpty()) {
+                mine(snapshot, workers)
                         .ifPresent(x -> {
                             LOG.info("Mined block with {} transactions and nonce {}", x.getTransactions().count(), x.getNonce());
-                            blockService.append(x);
-                            nodeService.broadcastPut("block", x);
+                            if (blockService.append(x)) {
+                                nodeService.broadcastPut("block", x);
+                            } else {
+                                evictRejected(x);
+                            }
                         });
             } else {
-                LOG.info("No transactions available, pausing");
+                LOG.info("No transactions available, waiting");
                 try {
-                    Thread.sleep(10000);
+                    awaitTransactions();
                 } catch (InterruptedException e) {
                     LOG.error("Thread interrupted", e);
                 }
             }
         }
+        workers.shutdown();
         LOG.info("Miner stopped");
     }
 
-    private Optional<Block> mine(List<Transaction> transactions) {
-        var previousHash = blockService.getLastHash();
-        var nonce = new AtomicLong(0L);
-        return Stream
-                .generate(() -> new Block(
-                        previousHash,
-                        transactions,
-                        difficulty,
-                        nonce.getAndIncrement(),
-                        clock.millis()
-                ))
-                .filter(x -> runMiner.get())
-                .filter(x -> getLeadingZerosCount(x) >= difficulty)
-                .findFirst();
+    /**
+     * Search the nonce space in parallel, every worker checks every n-th nonce starting at its own offset.
+     * All workers stop as soon as one of them found a valid Block, the chain tip changed or the miner is stopped.
+     * The merkle root is taken from the block template, only the winning nonce is turned into a Block.
+     *
+     * @param snapshot Transactions to include in the Block and their merkle root
+     * @param workers  runs the searches, needs a thread per worker
+     * @return the mined Block, empty if the round was given up
+     */
+    Optional<Block> mine(BlockTemplate.Snapshot snapshot, Executor workers) {
+        var current = new Round(blockService.getLastHash(), blockService.getDifficulty());
+        round = current;
+        // a TipChangedEvent published before the round was visible to onTipChanged would be missed otherwise
+        if (!Arrays.equals(current.previousHash, blockService.getLastHash())) {
+            current.stale = true;
+            current.finished.set(true);
+        }
+        var merkleRoot = snapshot.merkleRoot();
+        // a Block has to be dated after its predecessor, even if the clock went back
+        var timestamp = Math.max(clock.millis(), blockService.getTip().map(x -> x.getTimestamp() + 1).orElse(0L));
+        var threads = getWorkerCount();
+        var start = System.nanoTime();
+        var searches = IntStream.range(0, threads)
+                .mapToObj(offset -> CompletableFuture.runAsync(() -> {
+                    var hasher = new BlockHeaderHasher(current.previousHash, merkleRoot, current.difficulty, timestamp);
+                    var nonce = search(hasher, current.difficulty, offset, threads, () -> !runMiner.get() || current.finished.get());
+                    if (nonce >= 0 && current.finished.compareAndSet(false, true)) {
+                        current.nonce = nonce;
+                        current.found = true;
+                    }
+                }, workers))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(searches).join();
+        round = null;
+
+        if (current.stale) {
+            staleWork.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            LOG.info("Chain tip changed, discarding current round");
+            return Optional.empty();
+        }
+        if (!current.found) return Optional.empty();
+        return Optional.of(new Block(current.previousHash, snapshot.transactions(), current.difficulty, current.nonce, timestamp));
+    }
+
+    /**
+     * The pool may hold Transactions which were downloaded without verification or are in chain already.
+     * Remove those of a rejected Block, otherwise every following round would include them again.
+     *
+     * @param block the mined Block which failed verification
+     */
+    private void evictRejected(Block block) {
+        var transactions = block.getTransactions().toList();
+        var verifications = transactionVerifier.verifyAll(transactions);
+        for (var i = 0; i < transactions.size(); i++) {
+            var transaction = transactions.get(i);
+            var confirmed = blockService.getTransactionStatus(transaction.getHash()).filter(TransactionStatus::confirmed).isPresent();
+            if (confirmed || !verifications.get(i).join()) {
+                LOG.warn("Evicting rejected transaction {}", Base64.getEncoder().encodeToString(transaction.getHash()));
+                transactionService.remove(transaction);
+            }
+        }
+    }
+
+    /**
+     * Check every step-th nonce from offset on, so workers with the offsets 0 to step - 1 share the nonce space
+     *
+     * @param difficulty required number of leading zero bits
+     * @param stop       tells whether to give up, checked before every nonce
+     * @return the first nonce whose hash fulfills the difficulty, -1 if given up before
+     */
+    static long search(BlockHeaderHasher hasher, int difficulty, long offset, long step, BooleanSupplier stop) {
+        for (var nonce = offset; !stop.getAsBoolean(); nonce += step) {
+            if (getLeadingZeroBits(hasher.hash(nonce)) >= difficulty) return nonce;
+        }
+        return -1;
+    }
+
+    private void awaitTransactions() throws InterruptedException {
+        lock.lock();
+        try {
+            while (runMiner.get() && template.isEmpty()) {
+                wakeup.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalWakeup() {
+        lock.lock();
+        try {
+            wakeup.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getWorkerCount() {
+        return miningThreads > 0 ? miningThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * State shared by all workers searching on top of the same previous Block
+     */
+    private static final class Round {
+        private final byte[] previousHash;
+        private final int difficulty;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private volatile boolean stale;
+        private volatile boolean found;
+        private long nonce;
+
+        private Round(byte[] previousHash, int difficulty) {
+            this.previousHash = previousHash;
+            this.difficulty = difficulty;
+        }
     }
 }
@@ -1,24 +1,34 @@
 package de.neozo.jblockchain.node.service;
 
 
+import de.neozo.jblockchain.common.BinaryCodec;
+import de.neozo.jblockchain.common.BinaryHttpMessageConverter;
 import de.neozo.jblockchain.common.domain.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.context.ServletWebServerInitializedEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Stream;
 
 import static java.util.Collections.addAll;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 
 @Service
@@ -26,6 +36,18 @@ public class NodeService implements ApplicationListener<ServletWebServerInitiali
 
     private final static Logger LOG = LoggerFactory.getLogger(NodeService.class);
 
+    /**
+     * Number of threads relaying new data to other Nodes
+     */
+    @Value("${relay-threads}")
+    public int relayThreads;
+
+    /**
+     * Number of relays which may wait for a thread, further ones are rejected
+     */
+    @Value("${relay-queue-size}")
+    public int relayQueueSize;
+
     private final BlockService blockService;
     private final TransactionService transactionService;
     private final AddressService addressService;
@@ -36,19 +58,34 @@ public class NodeService implements ApplicationListener<ServletWebServerInitiali
     private final Set<Node> knownNodes = new HashSet<>();
     private final RestTemplate restTemplate = new RestTemplate();
 
+    private ThreadPoolExecutor relayExecutor;
+
     @Autowired
-    public NodeService(BlockService blockService, TransactionService transactionService, AddressService addressService, Node masterNode) {
+    public NodeService(BlockService blockService, TransactionService transactionService, AddressService addressService, Node masterNode, @Value("${max-element-size}") int maxElementSize) {
         this.blockService = blockService;
         this.transactionService = transactionService;
         this.addressService = addressService;
         this.masterNode = masterNode;
+
+        // Blocks, Transactions and Addresses are exchanged in the binary format, everything else as JSON
+        restTemplate.getMessageConverters().add(0, new BinaryHttpMessageConverter(BinaryCodec::encode, maxElementSize));
+    }
+
+    @PostConstruct
+    public void start() {
+        relayExecutor = new ThreadPoolExecutor(relayThreads, relayThreads, 0, MILLISECONDS, new ArrayBlockingQueue<>(relayQueueSize), runnable -> {
+            var thread = new Thread(runnable, "relay");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
-     * Initial setup, query master Node for
+     * Initial setup, the local state was restored by BlockService, TransactionService and SnapshotService already.
+     * Query master Node for
      * - Other Nodes
      * - All Addresses
-     * - Current Blockchain
+     * - Blocks after the stored chain
      * - Transactions in pool
      * and publish self on all other Nodes
      *
@@ -88,6 +125,7 @@ public class NodeService implements ApplicationListener<ServletWebServerInitiali
         LOG.info("Shutting down");
         broadcastPost("node/remove", self);
         LOG.info("{} informed", knownNodes.size());
+        relayExecutor.shutdown();
     }
 
 
@@ -104,19 +142,33 @@ public class NodeService implements ApplicationListener<ServletWebServerInitiali
     }
 
     /**
-     * Invoke a PUT request on all other Nodes
+     * Invoke a PUT request on all other Nodes, without waiting for them.
+     * The requests run on relayThreads threads with a bounded queue instead of a shared pool,
+     * requests which do not fit into the queue are dropped, the other Nodes catch up when they retrieve the chain.
      *
      * @param endpoint the endpoint for this request
      * @param data     the data to send
      */
     public void broadcastPut(String endpoint, Object data) {
-        knownNodes.parallelStream().forEach(node -> {
+        for (var node : copyKnownNodes()) {
             try {
-                restTemplate.put(new URL(node.address(), endpoint).toURI(), data);
-            } catch (URISyntaxException | MalformedURLException e) {
-                throw new RuntimeException(e);
+                relayExecutor.execute(() -> put(node, endpoint, data));
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Too many pending relays, dropping PUT {} to node {}", endpoint, node.address());
             }
-        });
+        }
+    }
+
+    private void put(Node node, String endpoint, Object data) {
+        try {
+            restTemplate.put(new URL(node.address(), endpoint).toURI(), data);
+        } catch (URISyntaxException | MalformedURLException | RestClientException e) {
+            LOG.warn("PUT {} to node {} failed", endpoint, node.address(), e);
+        }
+    }
+
+    private synchronized List<Node> copyKnownNodes() {
+        return List.copyOf(knownNodes);
     }
 
     /**
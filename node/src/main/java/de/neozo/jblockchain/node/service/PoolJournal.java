@@ -0,0 +1,266 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.BinaryCodec;
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only journal of the additions to and removals from the transaction pool, so the pool survives a restart.
+ * <p>
+ * Every change is one record of
+ * <pre>
+ * length  field
+ *      1  type, see ADD_VERIFIED, ADD_UNVERIFIED and REMOVE
+ *      4  length n of the content
+ *      4  CRC32C of the content
+ *      n  Transaction encoded by BinaryCodec for additions, its hash for removals
+ * </pre>
+ * Changes are queued and written by a single thread with group commit: everything queued meanwhile
+ * is written at once and forced to disk with one sync, then all callers waiting for these changes are completed.
+ * Once most records are obsolete, the journal is compacted into one addition per Transaction still in pool.
+ * A torn record at the end is dropped when opening the journal.
+ */
+@Repository
+public class PoolJournal {
+
+    private final static Logger LOG = LoggerFactory.getLogger(PoolJournal.class);
+
+    private static final byte ADD_VERIFIED = 1;
+    private static final byte ADD_UNVERIFIED = 2;
+    private static final byte REMOVE = 3;
+
+    private static final int RECORD_HEADER_LENGTH = 9;
+
+    /**
+     * Minimum number of records before the journal is compacted
+     */
+    @Value("${pool-journal-compaction-threshold}")
+    public int compactionThreshold;
+
+    private final Path file;
+
+    private final BlockingQueue<Change> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Transactions in pool according to the records written, only accessed by the writer after opening
+     */
+    private final Map<HashKey, Entry> entries = new LinkedHashMap<>();
+
+    private int records;
+
+    private FileChannel channel;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @Autowired
+    public PoolJournal(DataDirectory dataDirectory) {
+        this.file = dataDirectory.resolve("pool").resolve("pool.journal");
+    }
+
+    /**
+     * Read the journal, truncating a torn record at the end, and start the writer
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        channel = FileChannel.open(file, CREATE, READ, WRITE);
+        var length = channel.size();
+        var position = 0L;
+        if (length > 0) {
+            var data = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            var crc = new CRC32C();
+            while (length - position >= RECORD_HEADER_LENGTH) {
+                var type = data.get((int) position);
+                var recordLength = data.getInt((int) position + 1);
+                var checksum = data.getInt((int) position + 1 + Integer.BYTES);
+                if (recordLength < 0 || length - position - RECORD_HEADER_LENGTH < recordLength) break;
+
+                var content = data.slice((int) position + RECORD_HEADER_LENGTH, recordLength);
+                crc.reset();
+                crc.update(content.duplicate());
+                if ((int) crc.getValue() != checksum) break;
+
+                apply(type, content);
+                position += RECORD_HEADER_LENGTH + recordLength;
+            }
+        }
+        if (position != length) {
+            LOG.warn("Truncating torn record at offset {} of pool journal", position);
+            channel.truncate(position);
+            channel.force(false);
+        }
+        channel.position(position);
+        LOG.info("Opened pool journal with {} transactions in {} records", entries.size(), records);
+
+        running = true;
+        writer = new Thread(this::write, "pool-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Write all queued changes and close the journal
+     */
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        writer.join();
+        channel.close();
+    }
+
+    /**
+     * @return Transactions in pool according to the records written so far, in order of addition
+     */
+    public List<Entry> getEntries() {
+        synchronized (entries) {
+            return List.copyOf(entries.values());
+        }
+    }
+
+    /**
+     * Record the addition of a Transaction to the pool
+     *
+     * @param transaction the added Transaction
+     * @param verified    true if signature and hash were checked, so they need not be checked again after a restart
+     * @return future completed once the addition is on disk
+     */
+    public CompletableFuture<Void> add(Transaction transaction, boolean verified) {
+        var change = new Change(verified ? ADD_VERIFIED : ADD_UNVERIFIED, BinaryCodec.encode(transaction), new CompletableFuture<>());
+        queue.add(change);
+        return change.written();
+    }
+
+    /**
+     * Record the removal of a Transaction from the pool
+     *
+     * @param transaction the removed Transaction
+     * @return future completed once the removal is on disk
+     */
+    public CompletableFuture<Void> remove(Transaction transaction) {
+        var change = new Change(REMOVE, transaction.getHash(), new CompletableFuture<>());
+        queue.add(change);
+        return change.written();
+    }
+
+    /**
+     * Write queued changes in groups until closed and nothing is queued anymore
+     */
+    private void write() {
+        var batch = new ArrayList<Change>();
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+
+            try {
+                var buffer = ByteBuffer.allocate(batch.stream().mapToInt(x -> RECORD_HEADER_LENGTH + x.content().length).sum());
+                for (var change : batch) {
+                    putRecord(buffer, change.type(), change.content());
+                    apply(change.type(), ByteBuffer.wrap(change.content()));
+                }
+                writeFully(channel, buffer.flip());
+                channel.force(false);
+                batch.forEach(x -> x.written().complete(null));
+
+                if (records >= compactionThreshold && records > 2 * entries.size()) compact();
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Writing pool journal failed", e);
+                batch.forEach(x -> x.written().completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Replace the journal by one addition per Transaction still in pool
+     */
+    private void compact() throws IOException {
+        var compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var target = FileChannel.open(compacted, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            for (var entry : entries.values()) {
+                var content = BinaryCodec.encode(entry.transaction());
+                var buffer = ByteBuffer.allocate(RECORD_HEADER_LENGTH + content.length);
+                putRecord(buffer, entry.verified() ? ADD_VERIFIED : ADD_UNVERIFIED, content);
+                writeFully(target, buffer.flip());
+            }
+            target.force(false);
+        }
+        Files.move(compacted, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        channel.close();
+        channel = FileChannel.open(file, READ, WRITE);
+        channel.position(channel.size());
+        LOG.info("Compacted pool journal from {} to {} records", records, entries.size());
+        records = entries.size();
+    }
+
+    private void apply(byte type, ByteBuffer content) {
+        synchronized (entries) {
+            if (type == REMOVE) {
+                var hash = new byte[content.remaining()];
+                content.get(hash);
+                entries.remove(new HashKey(hash));
+            } else {
+                var transaction = BinaryCodec.readTransaction(content);
+                entries.put(new HashKey(transaction.getHash()), new Entry(transaction, type == ADD_VERIFIED));
+            }
+        }
+        records++;
+    }
+
+    private static void putRecord(ByteBuffer target, byte type, byte[] content) {
+        var crc = new CRC32C();
+        crc.update(content);
+        target.put(type).putInt(content.length).putInt((int) crc.getValue()).put(content);
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) target.write(buffer);
+    }
+
+    /**
+     * Transaction in pool according to the journal
+     *
+     * @param transaction the Transaction
+     * @param verified    true if signature and hash were checked before
+     */
+    public record Entry(Transaction transaction, boolean verified) {
+    }
+
+    private record Change(byte type, byte[] content, CompletableFuture<Void> written) {
+    }
+}
@@ -3,18 +3,55 @@ package de.neozo.jblockchain.node.service;
 import de.neozo.jblockchain.common.domain.Block;
 
 public class ProofOfWork {
+
     /**
-     * Count the number of bytes in the hash, which are zero at the beginning
+     * Highest possible difficulty, every bit of a SHA256-hash is zero
+     */
+    public static final int MAX_DIFFICULTY = 256;
+
+    /**
+     * Maximum number of bits the difficulty may change on a single retarget
+     */
+    public static final int MAX_ADJUSTMENT = 2;
+
+    /**
+     * Count the number of bits in the hash, which are zero at the beginning
      *
-     * @return int number of leading zeros
+     * @return int number of leading zero bits
      * @param block the Block to analyze
      */
-    public static int getLeadingZerosCount(Block block) {
+    public static int getLeadingZeroBits(Block block) {
+        return getLeadingZeroBits(block.getHash());
+    }
+
+    /**
+     * Count the number of bits in the hash, which are zero at the beginning
+     *
+     * @return int number of leading zero bits
+     * @param hash the raw hash to analyze
+     */
+    public static int getLeadingZeroBits(byte[] hash) {
         var count = 0;
-        while (count < block.getHash().length) {
-            if (block.getHash()[count] != 0) return count;
-            count++;
+        for (var b : hash) {
+            if (b != 0) return count + Integer.numberOfLeadingZeros(b & 0xff) - (Integer.SIZE - Byte.SIZE);
+            count += Byte.SIZE;
         }
         return count;
     }
+
+    /**
+     * Adjust the difficulty so Blocks are found as often as expected.
+     * Every bit of difficulty doubles the work, so the difference is the logarithm of the ratio between
+     * expected and actual time, limited to MAX_ADJUSTMENT bits per retarget.
+     *
+     * @param difficulty the current difficulty in bits
+     * @param actual     time it took to mine the last Blocks
+     * @param expected   time it should have taken to mine the last Blocks
+     * @return the new difficulty in bits
+     */
+    public static int retarget(int difficulty, long actual, long expected) {
+        var adjustment = Math.round(Math.log((double) expected / Math.max(actual, 1)) / Math.log(2));
+        adjustment = Math.max(-MAX_ADJUSTMENT, Math.min(MAX_ADJUSTMENT, adjustment));
+        return (int) Math.max(1, Math.min(MAX_DIFFICULTY, difficulty + adjustment));
+    }
 }
@@ -0,0 +1,139 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.Transaction;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Locations of the Transactions in chain by sender Address. Senders are numbered by a HashIndex,
+ * for every sender the locations are kept in chain order in one primitive array,
+ * each packed as height shifted by POSITION_BITS plus position.
+ */
+class SenderIndex {
+
+    /**
+     * Bits used for the position of a Transaction within its Block
+     */
+    private static final int POSITION_BITS = 24;
+
+    private final HashIndex senders = new HashIndex();
+
+    private long[][] locations = new long[1024][];
+
+    private int[] counts = new int[1024];
+
+    /**
+     * Index all Transactions of the next Block in chain
+     *
+     * @param block  the Block
+     * @param height height of the Block
+     */
+    synchronized void add(Block block, long height) {
+        var transactions = block.getTransactions().map(Transaction::getSender).collect(toList());
+        for (var position = 0; position < transactions.size(); position++) {
+            var sender = getNumber(transactions.get(position));
+            if (counts[sender] == locations[sender].length) {
+                locations[sender] = Arrays.copyOf(locations[sender], 2 * counts[sender]);
+            }
+            locations[sender][counts[sender]++] = height << POSITION_BITS | position;
+        }
+    }
+
+    /**
+     * @param sender hash of the sender Address
+     * @return number of Transactions in chain sent by this Address
+     */
+    synchronized int count(byte[] sender) {
+        var number = (int) senders.find(sender);
+        return number < 0 ? 0 : counts[number];
+    }
+
+    /**
+     * Find Transactions of a sender, newest first
+     *
+     * @param sender hash of the sender Address
+     * @param offset number of newest Transactions to skip
+     * @param limit  maximum number of locations to return
+     * @return locations of the Transactions, ordered from newest to oldest
+     */
+    synchronized List<TransactionLocation> find(byte[] sender, int offset, int limit) {
+        var number = (int) senders.find(sender);
+        var result = new ArrayList<TransactionLocation>();
+        if (number < 0) return result;
+
+        for (var i = counts[number] - 1 - offset; i >= 0 && result.size() < limit; i--) {
+            var location = locations[number][i];
+            result.add(new TransactionLocation(location >>> POSITION_BITS, (int) (location & ((1 << POSITION_BITS) - 1))));
+        }
+        return result;
+    }
+
+    /**
+     * Write the sender hashes followed by the locations of every sender
+     *
+     * @param output stream to write to
+     */
+    synchronized void write(DataOutput output) throws IOException {
+        senders.write(output);
+        for (var sender = 0; sender < senders.size(); sender++) {
+            output.writeInt(counts[sender]);
+            for (var i = 0; i < counts[sender]; i++) output.writeLong(locations[sender][i]);
+        }
+    }
+
+    /**
+     * Restore an empty index written by write()
+     *
+     * @param input stream to read from
+     * @throws IOException if the stream ends early or is malformed
+     */
+    synchronized void read(DataInput input) throws IOException {
+        if (senders.size() > 0) throw new IllegalStateException("Index is not empty");
+        senders.read(input);
+        var size = (int) senders.size();
+        locations = new long[Math.max(1024, size)][];
+        counts = new int[locations.length];
+        for (var sender = 0; sender < size; sender++) {
+            var count = input.readInt();
+            if (count < 0) throw new IOException("Invalid number of locations " + count);
+            locations[sender] = new long[Math.max(4, count)];
+            for (var i = 0; i < count; i++) locations[sender][i] = input.readLong();
+            counts[sender] = count;
+        }
+    }
+
+    /**
+     * Remove the Transactions of all Blocks from the given height on
+     *
+     * @param height number of Blocks to keep
+     */
+    synchronized void truncate(long height) {
+        var limit = height << POSITION_BITS;
+        for (var sender = 0; sender < senders.size(); sender++) {
+            while (counts[sender] > 0 && locations[sender][counts[sender] - 1] >= limit) counts[sender]--;
+        }
+    }
+
+    private int getNumber(byte[] sender) {
+        var number = (int) senders.find(sender);
+        if (number >= 0) return number;
+
+        number = (int) senders.size();
+        if (number == locations.length) {
+            locations = Arrays.copyOf(locations, 2 * number);
+            counts = Arrays.copyOf(counts, 2 * number);
+        }
+        locations[number] = new long[4];
+        senders.add(sender);
+        return number;
+    }
+}
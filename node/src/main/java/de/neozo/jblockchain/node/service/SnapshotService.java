@@ -0,0 +1,186 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.BinaryCodec;
+import de.neozo.jblockchain.common.Hashes;
+import de.neozo.jblockchain.common.domain.Address;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Periodic snapshots of the state which is neither part of the block store nor the pool journal, so a restarted Node
+ * only has to download the Blocks mined meanwhile instead of everything.
+ * <p>
+ * A snapshot is one binary file, replaced atomically:
+ * <pre>
+ * length  field
+ *      4  magic number
+ *      4  format version
+ *      8  chain height
+ *     32  hash of the last Block, all zero for an empty chain
+ *      4  number of Addresses, followed by the Addresses encoded by BinaryCodec
+ *      4  CRC32C of everything before
+ * </pre>
+ */
+@Service
+public class SnapshotService {
+
+    private final static Logger LOG = LoggerFactory.getLogger(SnapshotService.class);
+
+    private static final int MAGIC = 0x4a42534e;
+
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Time in milliseconds between two snapshots, 0 disables periodic snapshots
+     */
+    @Value("${snapshot-interval}")
+    public long snapshotInterval;
+
+    private final AddressService addressService;
+    private final BlockService blockService;
+
+    private final Path file;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public SnapshotService(AddressService addressService, BlockService blockService, DataDirectory dataDirectory) {
+        this.addressService = addressService;
+        this.blockService = blockService;
+        this.file = dataDirectory.resolve("snapshot").resolve("snapshot.bin");
+    }
+
+    /**
+     * Continue with the last snapshot, before the web server accepts requests, and start taking new ones
+     */
+    @PostConstruct
+    public void start() {
+        // the stored chain is loaded by BlockService already
+        restore();
+        if (snapshotInterval <= 0) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::write, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Take a last snapshot before shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdown();
+        write();
+    }
+
+    /**
+     * Write a snapshot of the current state together with a checkpoint of the chain indexes in the IndexStore,
+     * replacing the previous ones
+     */
+    public synchronized void write() {
+        blockService.writeIndexes();
+        var tip = blockService.getTip();
+        var height = blockService.getHeight();
+        var addresses = addressService.getAll().collect(toList());
+
+        var length = 2 * Integer.BYTES + Long.BYTES + Hashes.LENGTH + 2 * Integer.BYTES
+                + addresses.stream().mapToInt(BinaryCodec::getLength).sum();
+        var buffer = ByteBuffer.allocate(length)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(height)
+                .put(tip.map(x -> x.getHash()).orElse(new byte[Hashes.LENGTH]))
+                .putInt(addresses.size());
+        addresses.forEach(x -> BinaryCodec.write(buffer, x));
+        var crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue()).flip();
+
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        } catch (IOException e) {
+            LOG.error("Writing snapshot failed", e);
+            return;
+        }
+        try {
+            Files.move(temporary, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.error("Replacing snapshot failed", e);
+            return;
+        }
+        LOG.info("Wrote snapshot at height {} with {} addresses", height, addresses.size());
+    }
+
+    /**
+     * Load the Addresses of the last snapshot, if there is a valid one.
+     * The pool is not part of it, TransactionService restores it from the pool journal.
+     *
+     * @return true if a snapshot was loaded
+     */
+    public synchronized boolean restore() {
+        if (!Files.exists(file)) return false;
+
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (IOException e) {
+            LOG.error("Reading snapshot failed", e);
+            return false;
+        }
+
+        var buffer = ByteBuffer.wrap(data);
+        var crc = new CRC32C();
+        crc.update(data, 0, Math.max(0, data.length - Integer.BYTES));
+        if (data.length < 2 * Integer.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                || buffer.getInt(data.length - Integer.BYTES) != (int) crc.getValue()) {
+            LOG.warn("Ignoring invalid snapshot {}", file);
+            return false;
+        }
+        buffer.limit(data.length - Integer.BYTES);
+
+        var height = buffer.getLong();
+        var tipHash = new byte[Hashes.LENGTH];
+        buffer.get(tipHash);
+        var addresses = new ArrayList<Address>();
+        for (var i = buffer.getInt(); i > 0; i--) addresses.add(BinaryCodec.readAddress(buffer));
+
+        if (blockService.getHeight() < height || (height > 0 && blockService.getByHeight(height - 1)
+                .filter(x -> Arrays.equals(x.getHash(), tipHash)).isEmpty())) {
+            LOG.warn("Snapshot at height {} does not match the stored chain of {} blocks", height, blockService.getHeight());
+        }
+
+        addresses.forEach(addressService::add);
+        LOG.info("Restored snapshot at height {} with {} addresses", height, addresses.size());
+        return true;
+    }
+}
@@ -0,0 +1,319 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.BlockHeader;
+import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.common.domain.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Pushes new Blocks and Transactions to subscribed clients as Server-Sent Events, so they do not have to poll.
+ * <p>
+ * Every Block is sent as event "block" with its BlockHeader as data and its height as id, preceded by
+ * one event "transaction" with the confirmed TransactionStatus per Transaction of the Block.
+ * Transactions added to the pool are sent as event "transaction" with their pending TransactionStatus.
+ * A subscription may be limited to the Transactions of some senders, Block events are always sent.
+ * <p>
+ * Each subscription has a bounded queue of pending Transactions and tip changes, filled without blocking
+ * by whoever adds Blocks or Transactions. A subscription whose queue is full has fallen behind and is closed,
+ * its client resumes with the id of the last received event. The queues are drained by a pool of
+ * subscriptionThreads threads, so events of a subscription arrive in order. A tip change makes the subscription
+ * send the Blocks from its next height on, the new tip is taken from the event and older Blocks are read from
+ * the block store at most subscriptionPageSize at a time before the thread moves on to other subscriptions.
+ * If the chain switched to another branch, the Blocks are sent again from the fork on, so the client replaces
+ * the Blocks and confirmed Transactions it received for those heights.
+ * A client which stops reading still occupies a sending thread until its connection times out, delaying
+ * the other subscriptions served by that thread, but it never holds up adding Blocks or Transactions.
+ */
+@Service
+public class SubscriptionService {
+
+    private final static Logger LOG = LoggerFactory.getLogger(SubscriptionService.class);
+
+    /**
+     * Time in milliseconds after which a subscription is closed, clients resume with the id of the last received event
+     */
+    @Value("${subscription-timeout}")
+    public long subscriptionTimeout;
+
+    /**
+     * Number of threads sending events to the subscribed clients
+     */
+    @Value("${subscription-threads}")
+    public int subscriptionThreads;
+
+    /**
+     * Number of events which may wait for a subscription, it is closed when more are pending
+     */
+    @Value("${subscription-queue-size}")
+    public int subscriptionQueueSize;
+
+    /**
+     * Maximum number of Blocks sent to a subscription before a sending thread moves on to other subscriptions
+     */
+    @Value("${subscription-page-size}")
+    public int subscriptionPageSize;
+
+    private final BlockService blockService;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private ExecutorService sender;
+
+    @Autowired
+    public SubscriptionService(BlockService blockService) {
+        this.blockService = blockService;
+    }
+
+    @PostConstruct
+    public void start() {
+        sender = Executors.newFixedThreadPool(subscriptionThreads, runnable -> {
+            var thread = new Thread(runnable, "subscriptions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+        subscriptions.forEach(x -> x.emitter.complete());
+        subscriptions.clear();
+    }
+
+    /**
+     * Subscribe to Blocks mined from now on and Transactions added from now on
+     *
+     * @param senders hashes of the sender Addresses whose Transactions to send, all Transactions if empty
+     * @return emitter to return from the request handler
+     */
+    public SseEmitter subscribe(Set<HashKey> senders) {
+        return subscribe(senders, blockService.getHeight());
+    }
+
+    /**
+     * Subscribe to Blocks from the given height on and Transactions added from now on
+     *
+     * @param senders    hashes of the sender Addresses whose Transactions to send, all Transactions if empty
+     * @param fromHeight height of the first Block to send, Blocks already in chain are sent right away
+     * @return emitter to return from the request handler
+     */
+    public SseEmitter subscribe(Set<HashKey> senders, long fromHeight) {
+        var emitter = new SseEmitter(subscriptionTimeout);
+        var subscription = new Subscription(emitter, Set.copyOf(senders), fromHeight, subscriptionQueueSize);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(emitter::complete);
+
+        subscriptions.add(subscription);
+        var height = blockService.getHeight();
+        offer(subscription, new TipChange(height, height, null));
+        return emitter;
+    }
+
+    @EventListener
+    public void onTipChanged(TipChangedEvent event) {
+        // published while the Block is appended, so the height belongs to the tip
+        var tipChange = new TipChange(blockService.getHeight(), event.forkHeight(), event.tip());
+        for (var subscription : subscriptions) {
+            offer(subscription, tipChange);
+        }
+    }
+
+    @EventListener
+    public void onTransactionAdded(TransactionAddedEvent event) {
+        var status = TransactionStatus.pending(event.transaction());
+        for (var subscription : subscriptions) {
+            if (subscription.accepts(event.transaction())) offer(subscription, status);
+        }
+    }
+
+    /**
+     * Queue an event for a subscription without blocking, closing the subscription if its queue is full
+     */
+    private void offer(Subscription subscription, Object event) {
+        if (subscription.dropped) return;
+        if (!subscription.queue.offer(event)) {
+            LOG.info("Subscription fell behind by {} events, closing it", subscription.queue.size());
+            subscriptions.remove(subscription);
+            subscription.dropped = true;
+            subscription.queue.clear();
+        }
+        schedule(subscription);
+    }
+
+    private void schedule(Subscription subscription) {
+        if (!subscription.scheduled.compareAndSet(false, true)) return;
+        try {
+            sender.execute(() -> drain(subscription));
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            subscription.scheduled.set(false);
+        }
+    }
+
+    /**
+     * Send the queued events of a subscription, at most subscriptionPageSize Blocks at a time
+     */
+    private void drain(Subscription subscription) {
+        try {
+            if (subscription.dropped) {
+                // completed here, as completing waits for a send in progress
+                subscription.emitter.complete();
+                return;
+            }
+            var budget = subscriptionPageSize;
+            Object event;
+            while (budget > 0 && (event = subscription.queue.peek()) != null) {
+                if (event instanceof TipChange tipChange) {
+                    var sent = sendBlocks(subscription, tipChange, budget);
+                    if (sent < 0) return;
+                    budget -= sent;
+                    if (budget == 0) break;
+                } else if (!send(subscription, "transaction", null, event)) {
+                    return;
+                }
+                subscription.queue.poll();
+            }
+        } finally {
+            subscription.scheduled.set(false);
+        }
+        // events queued while sending, or Blocks left for the next page
+        if (!subscription.queue.isEmpty() || subscription.dropped) schedule(subscription);
+    }
+
+    /**
+     * Send a subscription the Blocks from its next height up to the height of a tip change
+     *
+     * @param limit maximum number of Blocks to send
+     * @return number of Blocks sent, limit if there may be more, -1 if the client is gone
+     */
+    private int sendBlocks(Subscription subscription, TipChange tipChange, int limit) {
+        // the chain may have been replaced by a shorter one
+        var height = Math.min(tipChange.height(), blockService.getHeight());
+        // Blocks from the fork on were replaced, whether the new branch is shorter or not
+        subscription.nextHeight = Math.min(subscription.nextHeight, Math.min(height, tipChange.forkHeight()));
+
+        var sent = 0;
+        while (sent < limit && subscription.nextHeight < height) {
+            var current = subscription.nextHeight;
+            var block = tipChange.tip() != null && current == tipChange.height() - 1
+                    ? tipChange.tip()
+                    : blockService.getByHeight(current).orElse(null);
+            if (block == null) break;
+            if (!sendBlock(subscription, block, current)) return -1;
+            sent++;
+        }
+        return sent;
+    }
+
+    /**
+     * @return false if the client is gone
+     */
+    private boolean sendBlock(Subscription subscription, Block block, long height) {
+        var position = 0;
+        for (var transaction : (Iterable<Transaction>) block.getTransactions()::iterator) {
+            if (subscription.accepts(transaction)) {
+                var status = new TransactionStatus(transaction, true, block.getHash(), height, position);
+                if (!send(subscription, "transaction", null, status)) return false;
+            }
+            position++;
+        }
+        if (!send(subscription, "block", Long.toString(height), BlockHeader.of(block))) return false;
+        subscription.nextHeight = height + 1;
+        return true;
+    }
+
+    /**
+     * @return false if the client is gone, the subscription is removed then
+     */
+    private boolean send(Subscription subscription, String name, String id, Object data) {
+        var event = SseEmitter.event().name(name).data(data, APPLICATION_JSON);
+        if (id != null) event.id(id);
+        try {
+            subscription.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            LOG.debug("Subscription closed", e);
+            subscriptions.remove(subscription);
+            subscription.dropped = true;
+            subscription.queue.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Queued when the tip changed, the subscription sends all Blocks up to the height
+     *
+     * @param height     height of the chain after the change
+     * @param forkHeight height of the first Block which changed, Blocks from there on are sent again
+     * @param tip        the new last Block, null if it has to be read from the block store
+     */
+    private record TipChange(long height, long forkHeight, Block tip) {
+    }
+
+    private static final class Subscription {
+
+        /**
+         * Connection to the client
+         */
+        private final SseEmitter emitter;
+
+        /**
+         * Hashes of the sender Addresses whose Transactions to send, all Transactions if empty
+         */
+        private final Set<HashKey> senders;
+
+        /**
+         * Pending TransactionStatus and TipChange events in order
+         */
+        private final BlockingQueue<Object> queue;
+
+        /**
+         * Whether a sending thread is about to drain the queue, there is at most one at a time
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * Height of the next Block to send, only accessed by the thread draining the queue
+         */
+        private long nextHeight;
+
+        /**
+         * Set once the subscription fell behind or its client is gone, no further events are sent
+         */
+        private volatile boolean dropped;
+
+        private Subscription(SseEmitter emitter, Set<HashKey> senders, long nextHeight, int queueSize) {
+            this.emitter = emitter;
+            this.senders = senders;
+            this.nextHeight = nextHeight;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        private boolean accepts(Transaction transaction) {
+            return senders.isEmpty() || senders.contains(new HashKey(transaction.getSender()));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Block;
+
+/**
+ * Published by BlockService whenever a new Block became the last Block in chain
+ *
+ * @param tip        the new last Block
+ * @param forkHeight height of the first Block which changed, lower than the height of the tip if several Blocks
+ *                   were appended or Blocks after it were replaced by another branch
+ */
+public record TipChangedEvent(Block tip, long forkHeight) {
+}
@@ -0,0 +1,12 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Transaction;
+
+/**
+ * Published by TransactionService whenever a verified Transaction was added to the pool
+ *
+ * @param transaction the added Transaction
+ */
+public record TransactionAddedEvent(Transaction transaction) {
+}
@@ -0,0 +1,112 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.Transaction;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Location of every Transaction in chain by its hash. Transactions are numbered in chain order,
+ * the height and position for each number are kept in primitive arrays next to a HashIndex.
+ */
+class TransactionIndex {
+
+    private final HashIndex hashes = new HashIndex();
+
+    private long[] heights = new long[1024];
+
+    private int[] positions = new int[1024];
+
+    /**
+     * Index all Transactions of the next Block in chain
+     *
+     * @param block  the Block
+     * @param height height of the Block
+     */
+    synchronized void add(Block block, long height) {
+        var transactions = block.getTransactions().map(Transaction::getHash).collect(toList());
+        for (var position = 0; position < transactions.size(); position++) {
+            var number = (int) hashes.size();
+            if (number == heights.length) {
+                heights = Arrays.copyOf(heights, 2 * number);
+                positions = Arrays.copyOf(positions, 2 * number);
+            }
+            heights[number] = height;
+            positions[number] = position;
+            hashes.add(transactions.get(position));
+        }
+    }
+
+    /**
+     * @param hash hash of the Transaction
+     * @return true if the Transaction is part of a Block in chain
+     */
+    synchronized boolean contains(byte[] hash) {
+        return hashes.find(hash) >= 0;
+    }
+
+    /**
+     * Find a Transaction in chain
+     *
+     * @param hash hash of the Transaction
+     * @return location of the Transaction, empty if it is not part of a Block in chain
+     */
+    synchronized Optional<TransactionLocation> find(byte[] hash) {
+        var number = (int) hashes.find(hash);
+        return number < 0 ? Optional.empty() : Optional.of(new TransactionLocation(heights[number], positions[number]));
+    }
+
+    /**
+     * Write the hashes followed by height and position of every Transaction
+     *
+     * @param output stream to write to
+     */
+    synchronized void write(DataOutput output) throws IOException {
+        hashes.write(output);
+        for (var number = 0; number < hashes.size(); number++) {
+            output.writeLong(heights[number]);
+            output.writeInt(positions[number]);
+        }
+    }
+
+    /**
+     * Restore an empty index written by write()
+     *
+     * @param input stream to read from
+     * @throws IOException if the stream ends early or is malformed
+     */
+    synchronized void read(DataInput input) throws IOException {
+        if (hashes.size() > 0) throw new IllegalStateException("Index is not empty");
+        hashes.read(input);
+        var size = (int) hashes.size();
+        heights = new long[Math.max(1024, size)];
+        positions = new int[heights.length];
+        for (var number = 0; number < size; number++) {
+            heights[number] = input.readLong();
+            positions[number] = input.readInt();
+        }
+    }
+
+    /**
+     * Remove the Transactions of all Blocks from the given height on
+     *
+     * @param height number of Blocks to keep
+     */
+    synchronized void truncate(long height) {
+        var size = (int) hashes.size();
+        var index = Arrays.binarySearch(heights, 0, size, height);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            while (index > 0 && heights[index - 1] == height) index--;
+        }
+        hashes.truncate(index);
+    }
+}
@@ -0,0 +1,11 @@
+package de.neozo.jblockchain.node.service;
+
+
+/**
+ * Position of a Transaction in chain
+ *
+ * @param height   height of the Block containing the Transaction
+ * @param position index of the Transaction within that Block
+ */
+public record TransactionLocation(long height, int position) {
+}
@@ -0,0 +1,12 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Transaction;
+
+/**
+ * Published by TransactionService whenever a Transaction left the pool, usually because it was included in a Block
+ *
+ * @param transaction the removed Transaction
+ */
+public record TransactionRemovedEvent(Transaction transaction) {
+}
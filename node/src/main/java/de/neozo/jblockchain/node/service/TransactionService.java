@@ -1,16 +1,24 @@
 package de.neozo.jblockchain.node.service;
 
 
-import de.neozo.jblockchain.common.Signatures;
 import de.neozo.jblockchain.common.domain.Node;
 import de.neozo.jblockchain.common.domain.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.*;
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 
@@ -19,88 +27,166 @@ public class TransactionService {
 
     private final static Logger LOG = LoggerFactory.getLogger(TransactionService.class);
 
-    private final AddressService addressService;
-
+    private final TransactionVerifier transactionVerifier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PoolJournal poolJournal;
 
     /**
      * Pool of Transactions which are not included in a Block yet.
      */
-    private final Set<Transaction> transactionPool = new HashSet<>();
+    private final Map<HashKey, Transaction> transactionPool = new ConcurrentHashMap<>();
+
+    /**
+     * Number of changes to the pool since start, tells clients whether their copy of the pool is still current
+     */
+    private volatile long version;
 
     @Autowired
-    public TransactionService(AddressService addressService) {
-        this.addressService = addressService;
+    public TransactionService(TransactionVerifier transactionVerifier, ApplicationEventPublisher eventPublisher, PoolJournal poolJournal) {
+        this.transactionVerifier = transactionVerifier;
+        this.eventPublisher = eventPublisher;
+        this.poolJournal = poolJournal;
+    }
+
+    /**
+     * Rebuild the pool from the journal, Transactions verified before are not verified again.
+     * The journal may still hold Transactions mined right before a shutdown, BlockService drops those
+     * once it has loaded the chain, see removeConfirmed.
+     */
+    @PostConstruct
+    public void load() {
+        var entries = poolJournal.getEntries();
+        for (var entry : entries) {
+            if (entry.verified()) transactionVerifier.markVerified(entry.transaction());
+            transactionPool.put(new HashKey(entry.transaction().getHash()), entry.transaction());
+        }
+        if (!entries.isEmpty()) LOG.info("Loaded {} transactions from pool journal", entries.size());
     }
 
 
     public Stream<Transaction> getTransactionPool() {
-        return transactionPool.stream();
+        return transactionPool.values().stream();
     }
 
     /**
-     * Add a new Transaction to the pool
+     * @return Transactions in pool in order of addition as recorded by the pool journal,
+     * followed by those whose addition is not recorded yet
+     */
+    public Stream<Transaction> getTransactionPoolInOrder() {
+        var ordered = new LinkedHashMap<HashKey, Transaction>();
+        for (var entry : poolJournal.getEntries()) {
+            var key = new HashKey(entry.transaction().getHash());
+            if (transactionPool.containsKey(key)) ordered.put(key, entry.transaction());
+        }
+        transactionPool.forEach(ordered::putIfAbsent);
+        return ordered.values().stream();
+    }
+
+    /**
+     * @return a number which changes whenever a Transaction is added to or removed from the pool
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Find a Transaction in pool
+     * @param hash hash of the Transaction
+     * @return the Transaction, empty if it is not in pool
+     */
+    public Optional<Transaction> get(byte[] hash) {
+        return Optional.ofNullable(transactionPool.get(new HashKey(hash)));
+    }
+
+    /**
+     * Add a new Transaction to the pool and publish a TransactionAddedEvent, waiting for the verification
      * @param transaction Transaction to add
      * @return true if verifcation succeeds and Transaction was added
      */
-    public synchronized boolean add(Transaction transaction) {
-        if (!verify(transaction)) return false;
-        transactionPool.add(transaction);
-        return true;
+    public boolean add(Transaction transaction) {
+        return addAsync(transaction).join();
     }
 
     /**
-     * Remove Transaction from pool
-     * @param transaction Transaction to remove
+     * Verify a new Transaction in parallel to other submissions, then add it to the pool and publish a TransactionAddedEvent
+     * @param transaction Transaction to add
+     * @return future completed with true if verifcation succeeds and Transaction was added and journaled
      */
-    public void remove(Transaction transaction) {
-        transactionPool.remove(transaction);
+    public CompletableFuture<Boolean> addAsync(Transaction transaction) {
+        return transactionVerifier.verify(transaction)
+                .thenCompose(valid -> valid
+                        ? insert(transaction, true).thenApply(x -> true)
+                        : CompletableFuture.completedFuture(false));
     }
 
     /**
-     * Does the pool contain all given Transactions?
-     * @param transactions Collection of Transactions to check
-     * @return true if all Transactions are member of the pool
+     * Verify several new Transactions in one batch, then add the valid ones to the pool and publish a TransactionAddedEvent each
+     * @param transactions Transactions to add
+     * @return future completed once all valid Transactions are added and journaled,
+     * with true or false per Transaction in the given order
      */
-    public boolean containsAll(Stream<Transaction> transactions) {
-        return transactions.allMatch(transactionPool::contains);
+    public CompletableFuture<List<Boolean>> addAllAsync(List<Transaction> transactions) {
+        var verifications = transactionVerifier.verifyAll(transactions);
+        var additions = new ArrayList<CompletableFuture<Boolean>>(transactions.size());
+        for (var i = 0; i < transactions.size(); i++) {
+            var transaction = transactions.get(i);
+            additions.add(verifications.get(i).thenCompose(valid -> valid
+                    ? insert(transaction, true).thenApply(x -> true)
+                    : CompletableFuture.completedFuture(false)));
+        }
+        return CompletableFuture.allOf(additions.toArray(CompletableFuture[]::new))
+                .thenApply(x -> additions.stream().map(CompletableFuture::join).toList());
     }
 
-    private boolean verify(Transaction transaction) {
-        // correct signature
-        var sender = addressService.getByHash(transaction.getSender());
-        if (sender == null) {
-            LOG.warn("Unknown address {}", Base64.getEncoder().encodeToString(transaction.getSender()));
-            return false;
+    /**
+     * Remove Transaction from pool and publish a TransactionRemovedEvent, serialized with adding
+     * so listeners never see the removal of a Transaction before its addition
+     * @param transaction Transaction to remove
+     */
+    public synchronized void remove(Transaction transaction) {
+        if (transactionPool.remove(new HashKey(transaction.getHash())) != null) {
+            version++;
+            poolJournal.remove(transaction);
+            eventPublisher.publishEvent(new TransactionRemovedEvent(transaction));
         }
+    }
 
-        try {
-            if (!Signatures.verify(transaction.getPayload(), transaction.getSignature(), sender.getPublicKey())) {
-                LOG.warn("Invalid signature");
-                return false;
-            }
-        } catch (Exception e) {
-            LOG.error("Error while verification", e);
-            return false;
-        }
+    /**
+     * Remove all Transactions from the pool which are already part of the chain
+     * @param confirmed tells whether a Transaction hash is in chain
+     */
+    public void removeConfirmed(Predicate<byte[]> confirmed) {
+        transactionPool.values().stream()
+                .filter(x -> confirmed.test(x.getHash()))
+                .toList()
+                .forEach(this::remove);
+    }
 
-        // correct hash
-        if (!Arrays.equals(transaction.getHash(), transaction.calculateHash())) {
-            LOG.warn("Invalid hash");
-            return false;
+    /**
+     * Add an already verified or downloaded Transaction to the pool, the only step of adding which is serialized
+     * @param transaction Transaction to add
+     * @param verified true if signature and hash were checked
+     * @return future completed once the addition is journaled, immediately if the Transaction is already in pool
+     */
+    private synchronized CompletableFuture<Void> insert(Transaction transaction, boolean verified) {
+        if (transactionPool.putIfAbsent(new HashKey(transaction.getHash()), transaction) != null) {
+            return CompletableFuture.completedFuture(null);
         }
-
-        return true;
+        version++;
+        var journaled = poolJournal.add(transaction, verified);
+        eventPublisher.publishEvent(new TransactionAddedEvent(transaction));
+        return journaled;
     }
 
     /**
-     * Download Transactions from other Node and them to the pool
+     * Download Transactions from other Node and add them to the pool
      * @param node Node to query
      * @param restTemplate RestTemplate to use
      */
     public void retrieveTransactions(Node node, RestTemplate restTemplate) {
         var transactions = restTemplate.getForObject(node.address() + "/transaction", Transaction[].class);
         if (transactions == null) transactions = new Transaction[0];
-        Collections.addAll(transactionPool, transactions);
+        for (var transaction : transactions) insert(transaction, false);
         LOG.info("Retrieved {} transactions from node {}", transactions.length, node.address());
     }
 }
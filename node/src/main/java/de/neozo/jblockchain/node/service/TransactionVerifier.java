@@ -0,0 +1,210 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.HeaderEncoder;
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+
+
+/**
+ * Checks signatures and hashes of incoming Transactions on all cores.
+ * Submitted Transactions are queued and taken in batches, each batch is verified in parallel.
+ * Callers get a future and are never blocked by other submitters.
+ * <p>
+ * Hashes of successfully verified Transactions are remembered, so a Transaction is only verified once
+ * even if it reaches this node again as part of a Block.
+ */
+@Service
+public class TransactionVerifier {
+
+    private final static Logger LOG = LoggerFactory.getLogger(TransactionVerifier.class);
+
+    /**
+     * Number of threads verifying Transactions, 0 means one per available processor
+     */
+    @Value("${verification-threads:0}")
+    public int verificationThreads;
+
+    /**
+     * Maximum number of Transactions taken from the queue at once
+     */
+    @Value("${verification-batch-size}")
+    public int verificationBatchSize;
+
+    private final AddressService addressService;
+
+    private final BlockingQueue<Verification> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Hashes of Transactions which passed verification
+     */
+    private final BoundedCache<HashKey, Boolean> verified;
+
+    private ForkJoinPool workers;
+    private Thread dispatcher;
+
+    @Autowired
+    public TransactionVerifier(AddressService addressService, @Value("${verified-transaction-cache-size}") int verifiedTransactionCacheSize) {
+        this.addressService = addressService;
+        this.verified = new BoundedCache<>(verifiedTransactionCacheSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        workers = new ForkJoinPool(verificationThreads > 0 ? verificationThreads : Runtime.getRuntime().availableProcessors());
+        dispatcher = new Thread(this::dispatch, "transaction-verifier");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.interrupt();
+        workers.shutdown();
+    }
+
+    /**
+     * Queue a Transaction for verification
+     *
+     * @param transaction Transaction to verify
+     * @return future completed with true if version, signature and hash are valid
+     */
+    public CompletableFuture<Boolean> verify(Transaction transaction) {
+        if (!isCurrentVersion(transaction)) return CompletableFuture.completedFuture(false);
+        if (isVerified(transaction)) return CompletableFuture.completedFuture(true);
+
+        var verification = new Verification(transaction, new CompletableFuture<>());
+        queue.add(verification);
+        return verification.result();
+    }
+
+    /**
+     * Queue several Transactions for verification at once
+     *
+     * @param transactions Transactions to verify
+     * @return futures in order of the given Transactions, each completed with true if version, signature and hash are valid
+     */
+    public List<CompletableFuture<Boolean>> verifyAll(List<Transaction> transactions) {
+        var results = new ArrayList<CompletableFuture<Boolean>>(transactions.size());
+        var misses = new ArrayList<Verification>();
+        for (var transaction : transactions) {
+            if (!isCurrentVersion(transaction)) {
+                results.add(CompletableFuture.completedFuture(false));
+            } else if (isVerified(transaction)) {
+                results.add(CompletableFuture.completedFuture(true));
+            } else {
+                var verification = new Verification(transaction, new CompletableFuture<>());
+                misses.add(verification);
+                results.add(verification.result());
+            }
+        }
+        queue.addAll(misses);
+        return results;
+    }
+
+    /**
+     * Has the Transaction already passed verification?
+     * The hash of a Transaction is always calculated from its content, so a known hash means known content.
+     *
+     * @param transaction Transaction to look up
+     * @return true if the Transaction is known to be valid
+     */
+    public boolean isVerified(Transaction transaction) {
+        return verified.contains(new HashKey(transaction.getHash()));
+    }
+
+    /**
+     * Remember a Transaction as valid without checking it, for Transactions this node verified before a restart
+     *
+     * @param transaction Transaction known to be valid
+     */
+    public void markVerified(Transaction transaction) {
+        verified.put(new HashKey(transaction.getHash()), true);
+    }
+
+    /**
+     * Only Transactions already in the stored chain may have the legacy version, new ones are created with the current one
+     */
+    private static boolean isCurrentVersion(Transaction transaction) {
+        if (transaction.getVersion() == HeaderEncoder.VERSION) return true;
+        LOG.warn("Transaction {} has outdated version {}", Base64.getEncoder().encodeToString(transaction.getHash()), transaction.getVersion());
+        return false;
+    }
+
+    /**
+     * Take batches from the queue and hand them to the workers until interrupted
+     */
+    private void dispatch() {
+        var batch = new ArrayList<Verification>(verificationBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, verificationBatchSize - 1);
+
+            var current = List.copyOf(batch);
+            batch.clear();
+            workers.execute(() -> current.parallelStream().forEach(x -> {
+                try {
+                    x.result().complete(check(x.transaction()));
+                } catch (RuntimeException e) {
+                    x.result().completeExceptionally(e);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Verify signature and hash of a single Transaction
+     *
+     * @param transaction Transaction to verify
+     * @return true if signature and hash are valid
+     */
+    boolean check(Transaction transaction) {
+        // correct signature
+        try {
+            var verificationKey = addressService.getVerificationKey(transaction.getSender());
+            if (verificationKey == null) {
+                LOG.warn("Unknown address {}", Base64.getEncoder().encodeToString(transaction.getSender()));
+                return false;
+            }
+
+            if (!verificationKey.verify(transaction.getPayload(), transaction.getSignature())) {
+                LOG.warn("Invalid signature");
+                return false;
+            }
+        } catch (Exception e) {
+            LOG.error("Error while verification", e);
+            return false;
+        }
+
+        // correct hash
+        if (!Arrays.equals(transaction.getHash(), transaction.calculateHash())) {
+            LOG.warn("Invalid hash");
+            return false;
+        }
+
+        verified.put(new HashKey(transaction.getHash()), true);
+        return true;
+    }
+
+    private record Verification(Transaction transaction, CompletableFuture<Boolean> result) {
+    }
+}
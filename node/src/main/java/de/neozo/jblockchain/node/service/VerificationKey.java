@@ -0,0 +1,28 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.SignatureScheme;
+
+import java.security.InvalidKeyException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+
+/**
+ * Parsed public key of an Address together with the SignatureScheme it belongs to
+ *
+ * @param scheme    SignatureScheme of the Address
+ * @param publicKey parsed public key of the Address
+ */
+public record VerificationKey(SignatureScheme scheme, PublicKey publicKey) {
+
+    /**
+     * Verify if the given signature was created by the owner of this key
+     *
+     * @param data      raw data which was signed
+     * @param signature signature to check
+     * @return true if the signature verification succeeds.
+     */
+    public boolean verify(byte[] data, byte[] signature) throws InvalidKeyException, SignatureException {
+        return scheme.verify(data, signature, publicKey);
+    }
+}
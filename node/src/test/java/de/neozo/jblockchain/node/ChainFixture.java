@@ -0,0 +1,79 @@
+package de.neozo.jblockchain.node;
+
+
+import de.neozo.jblockchain.common.Signatures;
+import de.neozo.jblockchain.common.domain.Address;
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.node.service.ProofOfWork;
+
+import java.security.KeyPair;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Signs Transactions as one Address and mines Blocks, shared by the tests of the Node
+ */
+public class ChainFixture {
+
+    private final Address address;
+
+    private final byte[] privateKey;
+
+    public ChainFixture(Address address, byte[] privateKey) {
+        this.address = address;
+        this.privateKey = privateKey;
+    }
+
+    /**
+     * @return fixture for a new RSA key pair, its Address still has to be added to the Node
+     */
+    public static ChainFixture generate() throws Exception {
+        KeyPair keyPair = Signatures.generateKeyPair();
+        return new ChainFixture(new Address("Max Mustermann", keyPair.getPublic().getEncoded()), keyPair.getPrivate().getEncoded());
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    public byte[] getPrivateKey() {
+        return privateKey;
+    }
+
+    /**
+     * @param message text of the Transaction
+     * @return Transaction sent now by the Address of this fixture
+     */
+    public Transaction signTransaction(String message) throws Exception {
+        return signTransaction(message, System.currentTimeMillis());
+    }
+
+    /**
+     * @param message   text of the Transaction
+     * @param timestamp creation time, a fixed one gives the same hash on every run
+     * @return Transaction sent by the Address of this fixture
+     */
+    public Transaction signTransaction(String message, long timestamp) throws Exception {
+        var text = message.getBytes(UTF_8);
+        return new Transaction(text, address.getHash(), Signatures.sign(text, privateKey), timestamp);
+    }
+
+    /**
+     * Search the first nonce whose hash has exactly difficulty leading zero bits, so a Block mined for a lower
+     * difficulty never fulfills a higher one by chance. Low difficulties take a few hundred tries.
+     *
+     * @param previousHash hash of the Block to build on, null for the first Block
+     * @param difficulty   required number of leading zero bits, also stored in the Block
+     * @return the mined Block
+     */
+    public static Block mine(byte[] previousHash, List<Transaction> transactions, int difficulty, long timestamp) {
+        var nonce = 0L;
+        while (true) {
+            var block = new Block(previousHash, transactions, difficulty, nonce, timestamp);
+            if (ProofOfWork.getLeadingZeroBits(block) == difficulty) return block;
+            nonce++;
+        }
+    }
+}
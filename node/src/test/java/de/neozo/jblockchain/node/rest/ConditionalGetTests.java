@@ -0,0 +1,92 @@
+package de.neozo.jblockchain.node.rest;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.node.ChainFixture;
+import de.neozo.jblockchain.node.service.AddressService;
+import de.neozo.jblockchain.node.service.BlockCache;
+import de.neozo.jblockchain.node.service.BlockService;
+import de.neozo.jblockchain.node.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"difficulty=8", "data-directory=target/data/${random.uuid}"})
+@AutoConfigureMockMvc
+@DirtiesContext
+public class ConditionalGetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private AddressService addressService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BlockService blockService;
+    @Autowired
+    private BlockCache blockCache;
+
+    private ChainFixture fixture;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        fixture = ChainFixture.generate();
+        addressService.add(fixture.getAddress());
+    }
+
+    @Test
+    public void getBlockchain_notModifiedUntilTipChanges() throws Exception {
+        var etag = mockMvc.perform(get("/block")).andExpect(status().isOk()).andReturn().getResponse().getHeader(ETAG);
+        mockMvc.perform(get("/block").header(IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+        assertTrue(blockService.append(mine(blockService.getLastHash(), List.of(fixture.signTransaction("Tip")))));
+        var changed = mockMvc.perform(get("/block").header(IF_NONE_MATCH, etag))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader(ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    public void getTransactionPool_notModifiedUntilPoolChanges() throws Exception {
+        var etag = mockMvc.perform(get("/transaction")).andExpect(status().isOk()).andReturn().getResponse().getHeader(ETAG);
+        mockMvc.perform(get("/transaction").header(IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+        assertTrue(transactionService.add(fixture.signTransaction("Pool")));
+        mockMvc.perform(get("/transaction").header(IF_NONE_MATCH, etag)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void serializeBlock_encodedOnce() throws Exception {
+        var block = mine(null, List.of(fixture.signTransaction("Cached")));
+
+        var first = objectMapper.writeValueAsString(block);
+        assertEquals(Jackson2ObjectMapperBuilder.json().build().writeValueAsString(block), first);
+        assertEquals(first, objectMapper.writeValueAsString(List.of(block)).replaceAll("^\\[|]$", ""));
+        assertSame(blockCache.getBinary(block), blockCache.getBinary(block));
+    }
+
+    private Block mine(byte[] previousHash, List<Transaction> transactions) {
+        return ChainFixture.mine(previousHash, transactions, blockService.getDifficulty(), System.currentTimeMillis());
+    }
+
+}
@@ -0,0 +1,199 @@
+package de.neozo.jblockchain.node.rest;
+
+
+import de.neozo.jblockchain.common.BinaryHttpMessageConverter;
+import de.neozo.jblockchain.common.domain.BlockHeader;
+import de.neozo.jblockchain.common.domain.Node;
+import de.neozo.jblockchain.node.ChainFixture;
+import de.neozo.jblockchain.node.service.AddressService;
+import de.neozo.jblockchain.node.service.BlockService;
+import de.neozo.jblockchain.node.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Base64;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"difficulty=8", "data-directory=target/data/${random.uuid}"})
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+public class EventControllerTests {
+
+    @Autowired
+    private WebApplicationContext context;
+    @Autowired
+    private AddressService addressService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BlockService blockService;
+
+    private MockMvc mockMvc;
+    private ContentRecorder recorder;
+    private ChainFixture fixture;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        recorder = new ContentRecorder();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(recorder).build();
+        fixture = ChainFixture.generate();
+        addressService.add(fixture.getAddress());
+    }
+
+    @Test
+    public void subscribe_resumeAndFilter() throws Exception {
+        var first = ChainFixture.mine(null, List.of(fixture.signTransaction("Mined")), blockService.getDifficulty(), System.currentTimeMillis());
+        assertTrue(blockService.append(first));
+
+        var filter = Base64.getUrlEncoder().encodeToString(fixture.getAddress().getHash());
+        mockMvc.perform(get("/events").param("address", filter).param("fromHeight", "0"))
+                .andExpect(request().asyncStarted());
+
+        // Blocks already in chain are sent right away, with the Transactions of the filtered sender
+        var content = recorder.await("id:0");
+        assertTrue(content.indexOf("event:transaction") < content.indexOf("event:block"));
+        assertTrue(content.contains("\"confirmed\":true"));
+
+        // events are sent in order, so the other Transaction would arrive before the pending one
+        var other = ChainFixture.generate();
+        addressService.add(other.getAddress());
+        var text = "Other";
+        assertTrue(transactionService.add(other.signTransaction(text)));
+        assertTrue(transactionService.add(fixture.signTransaction("Pending")));
+
+        content = recorder.await("\"confirmed\":false");
+        assertFalse(content.contains(Base64.getEncoder().encodeToString(text.getBytes(UTF_8))));
+    }
+
+    @Test
+    public void subscribe_resendsBlocksReplacedByLongerBranch() throws Exception {
+        var now = System.currentTimeMillis();
+        var local = ChainFixture.mine(null, List.of(fixture.signTransaction("Local")), blockService.getDifficulty(), now);
+        assertTrue(blockService.append(local));
+
+        mockMvc.perform(get("/events").param("fromHeight", "0")).andExpect(request().asyncStarted());
+        recorder.await(Base64.getEncoder().encodeToString(local.getHash()));
+
+        // a branch from the first Block on, longer than the stored chain
+        var first = ChainFixture.mine(null, List.of(fixture.signTransaction("Remote 0")), blockService.getDifficulty(), now);
+        var second = ChainFixture.mine(first.getHash(), List.of(fixture.signTransaction("Remote 1")), blockService.getDifficulty(), now + 1);
+        var restTemplate = new RestTemplate(List.of(new BinaryHttpMessageConverter()));
+        var server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://remote/block/headers?from=1&limit=1000"))
+                .andRespond(withSuccess(toBody(List.of(BlockHeader.of(second))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=0&limit=1"))
+                .andRespond(withSuccess(toBody(List.of(BlockHeader.of(first))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=0&limit=1000"))
+                .andRespond(withSuccess(toBody(List.of(BlockHeader.of(first), BlockHeader.of(second))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block?fromHeight=0&limit=2"))
+                .andRespond(withSuccess(toBody(List.of(first, second)), BinaryHttpMessageConverter.MEDIA_TYPE));
+        blockService.retrieveBlockchain(new Node(new URL("http://remote")), restTemplate);
+        server.verify();
+
+        // the Block replaced at height 0 is sent again with its Transactions, not just the Block after it
+        recorder.await(Base64.getEncoder().encodeToString("Remote 0".getBytes(UTF_8)));
+        recorder.await(Base64.getEncoder().encodeToString(second.getHash()));
+    }
+
+    @Test
+    public void subscribe_invalidHeight() throws Exception {
+        mockMvc.perform(get("/events").param("fromHeight", "-1")).andExpect(status().isBadRequest());
+    }
+
+    private static byte[] toBody(List<?> elements) throws IOException {
+        var body = new MockHttpOutputMessage();
+        new BinaryHttpMessageConverter().write(elements, BinaryHttpMessageConverter.MEDIA_TYPE, body);
+        return body.getBodyAsBytes();
+    }
+
+    /**
+     * Copies everything written to the responses and wakes up waiting tests on every write,
+     * so they block until the expected events were sent instead of polling the response
+     */
+    private static final class ContentRecorder implements Filter {
+
+        private final StringBuilder content = new StringBuilder();
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+            chain.doFilter(request, new HttpServletResponseWrapper((HttpServletResponse) response) {
+                @Override
+                public ServletOutputStream getOutputStream() throws IOException {
+                    var target = super.getOutputStream();
+                    return new ServletOutputStream() {
+                        @Override
+                        public boolean isReady() {
+                            return target.isReady();
+                        }
+
+                        @Override
+                        public void setWriteListener(WriteListener listener) {
+                            target.setWriteListener(listener);
+                        }
+
+                        @Override
+                        public void write(int b) throws IOException {
+                            write(new byte[]{(byte) b}, 0, 1);
+                        }
+
+                        @Override
+                        public void write(byte[] b, int off, int len) throws IOException {
+                            target.write(b, off, len);
+                            record(new String(b, off, len, UTF_8));
+                        }
+                    };
+                }
+            });
+        }
+
+        private synchronized void record(String written) {
+            content.append(written);
+            notifyAll();
+        }
+
+        /**
+         * @return everything written so far, once it contains the expected text
+         */
+        private synchronized String await(String expected) throws InterruptedException {
+            var deadline = System.nanoTime() + SECONDS.toNanos(10);
+            while (content.indexOf(expected) < 0) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) fail("Missing " + expected + " in\n" + content);
+                NANOSECONDS.timedWait(this, remaining);
+            }
+            return content.toString();
+        }
+    }
+}
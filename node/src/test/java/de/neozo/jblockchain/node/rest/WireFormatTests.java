@@ -0,0 +1,127 @@
+package de.neozo.jblockchain.node.rest;
+
+
+import de.neozo.jblockchain.common.BinaryCodec;
+import de.neozo.jblockchain.common.BinaryHttpMessageConverter;
+import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.node.ChainFixture;
+import de.neozo.jblockchain.node.service.AddressService;
+import de.neozo.jblockchain.node.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"max-batch-size=2", "data-directory=target/data/${random.uuid}"})
+@AutoConfigureMockMvc
+@DirtiesContext
+public class WireFormatTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AddressService addressService;
+    @Autowired
+    private TransactionService transactionService;
+
+    private ChainFixture fixture;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        fixture = ChainFixture.generate();
+        addressService.add(fixture.getAddress());
+    }
+
+    @Test
+    public void putTransaction_binary() throws Exception {
+        var transaction = fixture.signTransaction("Binary");
+        var result = mockMvc.perform(put("/transaction")
+                        .contentType(BinaryHttpMessageConverter.MEDIA_TYPE)
+                        .content(BinaryCodec.encode(transaction)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        assertTrue(transactionService.get(transaction.getHash()).isPresent());
+    }
+
+    @Test
+    public void putTransactionBatch_binary() throws Exception {
+        var transactions = new Transaction[]{fixture.signTransaction("Batch 0"), fixture.signTransaction("Batch 1")};
+        var body = ByteBuffer.allocate(Arrays.stream(transactions).mapToInt(x -> Integer.BYTES + BinaryCodec.getLength(x)).sum());
+        for (var transaction : transactions) {
+            body.putInt(BinaryCodec.getLength(transaction));
+            BinaryCodec.write(body, transaction);
+        }
+        var result = mockMvc.perform(put("/transaction/batch")
+                        .contentType(BinaryHttpMessageConverter.MEDIA_TYPE)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(body.array()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].accepted").value(true))
+                .andExpect(jsonPath("$[1].accepted").value(true));
+
+        for (var transaction : transactions) {
+            assertTrue(transactionService.get(transaction.getHash()).isPresent());
+        }
+    }
+
+    @Test
+    public void putTransactionBatch_tooLarge() throws Exception {
+        // rejected before any signature is verified
+        var transactions = new ArrayList<Transaction>();
+        for (var i = 0; i < 3; i++) {
+            transactions.add(new Transaction("Unsigned %d".formatted(i).getBytes(UTF_8), fixture.getAddress().getHash(), new byte[0], i));
+        }
+        var body = ByteBuffer.allocate(transactions.stream().mapToInt(x -> Integer.BYTES + BinaryCodec.getLength(x)).sum());
+        for (var transaction : transactions) {
+            body.putInt(BinaryCodec.getLength(transaction));
+            BinaryCodec.write(body, transaction);
+        }
+        mockMvc.perform(put("/transaction/batch")
+                        .contentType(BinaryHttpMessageConverter.MEDIA_TYPE)
+                        .content(body.array()))
+                .andExpect(status().isPayloadTooLarge());
+
+        for (var transaction : transactions) {
+            assertTrue(transactionService.get(transaction.getHash()).isEmpty());
+        }
+    }
+
+    @Test
+    public void getTransactionPool_negotiated() throws Exception {
+        var transaction = fixture.signTransaction("Negotiated");
+        assertTrue(transactionService.add(transaction));
+
+        var binary = mockMvc.perform(get("/transaction").accept(BinaryHttpMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON))
+                .andExpect(content().contentType(BinaryHttpMessageConverter.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+        var expected = transactionService.getTransactionPool().mapToInt(t -> Integer.BYTES + BinaryCodec.getLength(t)).sum();
+        assertEquals(expected, binary.length);
+
+        mockMvc.perform(get("/transaction").accept(MediaType.ALL))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+}
@@ -1,108 +1,469 @@
 package de.neozo.jblockchain.node.service;
 
 
+import de.neozo.jblockchain.common.BinaryHttpMessageConverter;
+import de.neozo.jblockchain.common.HeaderEncoder;
 import de.neozo.jblockchain.common.Signatures;
 import de.neozo.jblockchain.common.domain.Address;
 import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.BlockHeader;
+import de.neozo.jblockchain.common.domain.Node;
 import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.common.domain.TransactionStatus;
+import de.neozo.jblockchain.node.ChainFixture;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.http.MockHttpOutputMessage;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.WebApplicationContext;
 
+import java.net.URL;
+import java.nio.file.Files;
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
+import static de.neozo.jblockchain.node.ChainFixture.mine;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+@SpringBootTest(properties = {"difficulty=8", "retarget-interval=2", "block-interval=60000", "data-directory=target/data/${random.uuid}"})
 @DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
 public class BlockServiceTests {
 
-    private final static byte[] fixedSignature = new byte[]{48, 44, 2, 20, 89, 48, -114, -49, 36, 65, 116, -5, 88, 6, -38, -110, -30, -73, 59, -53, 19, -49, 122, 90, 2, 20, 111, 38, 55, -120, -125, 17, -66, -8, -121, 85, 31, -82, -80, -31, -33, 116, 121, -90, 123, -113};
-
     @Autowired
     private BlockService blockService;
     @Autowired
     private TransactionService transactionService;
     @Autowired
     private AddressService addressService;
+    @Autowired
+    private TransactionVerifier transactionVerifier;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private BlockStore blockStore;
+    @Autowired
+    private IndexStore indexStore;
+    @Autowired
+    private DataDirectory dataDirectory;
+    @Autowired
+    private Clock clock;
+    @Autowired
+    private WebApplicationContext context;
 
-    private Address address;
-    private byte[] privateKey;
+    private ChainFixture fixture;
 
     @BeforeEach
     public void setUp() throws Exception {
         var classLoader = Thread.currentThread().getContextClassLoader();
-        privateKey = classLoader.getResourceAsStream("key.priv").readAllBytes();
+        var privateKey = classLoader.getResourceAsStream("key.priv").readAllBytes();
         var publicKey = classLoader.getResourceAsStream("key.pub").readAllBytes();
-        address = new Address("Max Mustermann", publicKey);
-        addressService.add(address);
+        fixture = new ChainFixture(new Address("Max Mustermann", publicKey), privateKey);
+        addressService.add(fixture.getAddress());
     }
 
     @Test
-    public void addBlock_validHash() {
-        var block = new Block(null, List.of(generateStableTransaction()), 3, 20854567, 42);
+    public void addBlock_validHash() throws Exception {
+        var block = mine(null, List.of(generateStableTransaction()), 8, 42);
         assertTrue(blockService.append(block));
     }
 
     @Test
     public void addBlock_invalidHash() throws Exception {
-        var block = new Block(null, generateTransactions(1), 3, 42, System.currentTimeMillis());
+        var block = new Block(null, generateTransactions(1), 8, 42, System.currentTimeMillis());
+        assertFalse(blockService.append(block));
+    }
+
+    @Test
+    public void addBlock_invalidDifficulty() throws Exception {
+        var block = mine(null, generateTransactions(1), 7, 42);
         assertFalse(blockService.append(block));
     }
 
     @Test
     public void addBlock_invalidLimitExceeded() throws Exception {
-        var block = new Block(null, generateTransactions(6), 3, 42, System.currentTimeMillis());
+        var block = new Block(null, generateTransactions(6), 8, 42, System.currentTimeMillis());
         assertFalse(blockService.append(block));
     }
 
-    @Disabled
     @Test
-    public void addBlock_generateBlock() {
-        var transactions = List.of(generateStableTransaction());
-        var success = false;
-        var nonce = 0;
-        while (!success) {
-            var block = new Block(null, transactions, 3, nonce, 42);
-            success = blockService.append(block);
-            nonce++;
+    public void addBlock_validTransactionNotInPool() throws Exception {
+        var block = mine(null, List.of(fixture.signTransaction("Unknown to this node")), 8, 42);
+        assertTrue(blockService.append(block));
+    }
+
+    @Test
+    public void addBlock_invalidTransactionAlreadyInChain() throws Exception {
+        var transactions = generateTransactions(1);
+        assertTrue(blockService.append(mine(null, transactions, 8, 42)));
+        assertFalse(blockService.append(mine(blockService.getLastHash(), transactions, 8, 43)));
+    }
+
+    @Test
+    public void addBlock_invalidTimestampNotAfterPrevious() throws Exception {
+        assertTrue(blockService.append(mine(null, generateTransactions(1), 8, 42)));
+        assertFalse(blockService.append(mine(blockService.getLastHash(), List.of(fixture.signTransaction("Same time")), 8, 42)));
+    }
+
+    @Test
+    public void addBlock_invalidTimestampAheadOfClock() throws Exception {
+        var ahead = clock.millis() + blockService.maxClockDrift + 60000;
+        assertFalse(blockService.append(mine(null, generateTransactions(1), 8, ahead)));
+    }
+
+    @Test
+    public void addBlock_invalidSignature() throws Exception {
+        var transaction = new Transaction(
+                "Forged".getBytes(UTF_8),
+                fixture.getAddress().getHash(),
+                Signatures.sign("Original".getBytes(UTF_8), fixture.getPrivateKey()),
+                42
+        );
+        assertFalse(blockService.append(mine(null, List.of(transaction), 8, 42)));
+    }
+
+    @Test
+    public void addBlock_invalidLegacyVersion() throws Exception {
+        var transactions = generateTransactions(1);
+        var block = new Block(HeaderEncoder.LEGACY_VERSION, null, transactions, 8, 0, 42);
+        while (ProofOfWork.getLeadingZeroBits(block) < 8) {
+            block = new Block(HeaderEncoder.LEGACY_VERSION, null, transactions, 8, block.getNonce() + 1, 42);
         }
-        System.out.println("nonce=" + (nonce - 1));
+        assertFalse(blockService.append(block));
+        assertTrue(blockService.append(mine(null, transactions, 8, 42)));
+    }
+
+    @Test
+    public void getDifficulty_retarget() throws Exception {
+        assertEquals(8, blockService.getDifficulty());
+        assertTrue(blockService.append(mine(null, generateTransactions(1), 8, 42)));
+        assertEquals(8, blockService.getDifficulty());
+
+        // mined much faster than the block-interval
+        assertTrue(blockService.append(mine(blockService.getLastHash(), generateTransactions(1), 8, 43)));
+        assertEquals(10, blockService.getDifficulty());
+    }
+
+    @Test
+    public void getByHash_getByHeight() throws Exception {
+        var first = mine(null, generateTransactions(1), 8, 42);
+        var second = mine(first.getHash(), generateTransactions(1), 8, 43);
+        assertTrue(blockService.append(first));
+        assertTrue(blockService.append(second));
+
+        assertEquals(first, blockService.getByHash(first.getHash()).orElseThrow());
+        assertEquals(second, blockService.getByHeight(1).orElseThrow());
+        assertEquals(second, blockService.getTip().orElseThrow());
+        assertTrue(blockService.getByHash(new byte[32]).isEmpty());
+        assertTrue(blockService.getByHeight(2).isEmpty());
+    }
+
+    @Test
+    public void getTransactionStatus() throws Exception {
+        var pending = fixture.signTransaction("Pending");
+        assertTrue(transactionService.add(pending));
+        var confirmed = generateTransactions(2);
+        assertTrue(blockService.append(mine(null, List.of(fixture.signTransaction("First")), 8, 42)));
+        var block = mine(blockService.getLastHash(), confirmed, 8, 43);
+        assertTrue(blockService.append(block));
+
+        var status = blockService.getTransactionStatus(confirmed.get(1).getHash()).orElseThrow();
+        assertTrue(status.confirmed());
+        assertEquals(1, status.height());
+        assertEquals(1, status.position());
+        assertEquals(confirmed.get(1), status.transaction());
+        assertFalse(blockService.getTransactionStatus(pending.getHash()).orElseThrow().confirmed());
+        assertTrue(blockService.getTransactionStatus(new byte[32]).isEmpty());
+    }
+
+    @Test
+    public void getTransactionsBySender() throws Exception {
+        var first = generateTransactions(2);
+        assertTrue(blockService.append(mine(null, first, 8, 42)));
+        var second = List.of(fixture.signTransaction("Second"));
+        assertTrue(blockService.append(mine(blockService.getLastHash(), second, 8, 43)));
+
+        var page = blockService.getTransactionsBySender(fixture.getAddress().getHash(), 0, 2);
+        assertEquals(2, page.size());
+        assertEquals(second.get(0), page.get(0).transaction());
+        assertEquals(first.get(1), page.get(1).transaction());
+        assertEquals(0, page.get(1).height());
+
+        page = blockService.getTransactionsBySender(fixture.getAddress().getHash(), 2, 2);
+        assertEquals(List.of(first.get(0)), page.stream().map(TransactionStatus::transaction).toList());
+        assertTrue(blockService.getTransactionsBySender(new byte[32], 0, 10).isEmpty());
+    }
+
+    @Test
+    public void getBlockchain_range() throws Exception {
+        var blocks = mineChain("Local", 3);
+        for (var block : blocks) assertTrue(blockService.append(block));
+
+        var range = blockService.getBlockchain(1, 1).toList();
+        assertEquals(1, range.size());
+        assertArrayEquals(blocks.get(1).getHash(), range.get(0).getHash());
+        assertEquals(3, blockService.getBlockchain(0, 10).count());
+    }
+
+    @Test
+    public void load_fromIndexCheckpoint() throws Exception {
+        var blocks = mineChain("Indexed", 3);
+        assertTrue(blockService.append(blocks.get(0)));
+        assertTrue(blockService.append(blocks.get(1)));
+        blockService.writeIndexes();
+        assertTrue(blockService.append(blocks.get(2)));
+
+        // the first two Blocks come from the checkpoint, the last one is indexed from the block store
+        var restarted = restart();
+        assertArrayEquals(blocks.get(2).getHash(), restarted.getLastHash());
+        assertEquals(blocks.get(1), restarted.getByHash(blocks.get(1).getHash()).orElseThrow());
+        for (var i = 0; i < blocks.size(); i++) {
+            var transaction = blocks.get(i).getTransactions().findFirst().orElseThrow();
+            assertEquals(i, restarted.getTransactionStatus(transaction.getHash()).orElseThrow().height());
+        }
+        assertEquals(3, restarted.getTransactionsBySender(fixture.getAddress().getHash(), 0, 10).size());
+
+        // a damaged checkpoint is ignored, everything is indexed again
+        var indexFile = dataDirectory.resolve("index").resolve("index.bin");
+        var data = Files.readAllBytes(indexFile);
+        data[data.length / 2] ^= 1;
+        Files.write(indexFile, data);
+        assertEquals(3, restart().getTransactionsBySender(fixture.getAddress().getHash(), 0, 10).size());
+    }
+
+    @Test
+    public void retrieveBlockchain_headersFirst() throws Exception {
+        var blocks = mineChain("Remote", 3);
+        var restTemplate = new RestTemplate(List.of(new BinaryHttpMessageConverter()));
+        var server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://remote/block/headers?from=0&limit=2"))
+                .andRespond(withSuccess(toBody(headers(blocks.subList(0, 2))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=2&limit=2"))
+                .andRespond(withSuccess(toBody(headers(blocks.subList(2, 3))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block?fromHeight=0&limit=2"))
+                .andRespond(withSuccess(toBody(blocks.subList(0, 2)), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block?fromHeight=2&limit=1"))
+                .andRespond(withSuccess(toBody(blocks.subList(2, 3)), BinaryHttpMessageConverter.MEDIA_TYPE));
+
+        blockService.syncPageSize = 2;
+        blockService.retrieveBlockchain(new Node(new URL("http://remote")), restTemplate);
+
+        server.verify();
+        assertEquals(3, blockService.getHeight());
+        assertArrayEquals(blocks.get(2).getHash(), blockService.getLastHash());
+    }
+
+    @Test
+    public void retrieveBlockchain_invalidHeaderStopsBeforeBodies() throws Exception {
+        var valid = mineChain("Remote", 1).get(0);
+        var invalid = new Block(valid.getHash(), List.of(fixture.signTransaction("Not mined")), 8, 0, 60000);
+        while (ProofOfWork.getLeadingZeroBits(invalid) >= 8) {
+            invalid = new Block(valid.getHash(), List.of(fixture.signTransaction("Not mined")), 8, invalid.getNonce() + 1, 60000);
+        }
+        var restTemplate = new RestTemplate(List.of(new BinaryHttpMessageConverter()));
+        var server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://remote/block/headers?from=0&limit=1000"))
+                .andRespond(withSuccess(toBody(headers(List.of(valid, invalid))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block?fromHeight=0&limit=1"))
+                .andRespond(withSuccess(toBody(List.of(valid)), BinaryHttpMessageConverter.MEDIA_TYPE));
+
+        blockService.retrieveBlockchain(new Node(new URL("http://remote")), restTemplate);
+
+        server.verify();
+        assertEquals(1, blockService.getHeight());
+    }
+
+    @Test
+    public void retrieveBlockchain_headerDatedBackStopsBeforeBodies() throws Exception {
+        var valid = mineChain("Remote", 1).get(0);
+        var datedBack = mine(valid.getHash(), List.of(fixture.signTransaction("Dated back")), 8, valid.getTimestamp());
+        var restTemplate = new RestTemplate(List.of(new BinaryHttpMessageConverter()));
+        var server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://remote/block/headers?from=0&limit=1000"))
+                .andRespond(withSuccess(toBody(headers(List.of(valid, datedBack))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block?fromHeight=0&limit=1"))
+                .andRespond(withSuccess(toBody(List.of(valid)), BinaryHttpMessageConverter.MEDIA_TYPE));
+
+        blockService.retrieveBlockchain(new Node(new URL("http://remote")), restTemplate);
+
+        server.verify();
+        assertEquals(1, blockService.getHeight());
+    }
+
+    @Test
+    public void retrieveBlockchain_switchesToBranchWithMoreWork() throws Exception {
+        var local = mineChain("Local", 2);
+        local.forEach(x -> assertTrue(blockService.append(x)));
+        var orphaned = local.get(1).getTransactions().findFirst().orElseThrow();
+        var remote = mineChain(local.subList(0, 1), "Remote", 2);
+
+        var restTemplate = new RestTemplate(List.of(new BinaryHttpMessageConverter()));
+        var server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://remote/block/headers?from=2&limit=1000"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(2, 3))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=1&limit=1"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(1, 2))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=0&limit=1"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(0, 1))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=1&limit=1000"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(1, 3))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block?fromHeight=1&limit=2"))
+                .andRespond(withSuccess(toBody(remote.subList(1, 3)), BinaryHttpMessageConverter.MEDIA_TYPE));
+
+        blockService.retrieveBlockchain(new Node(new URL("http://remote")), restTemplate);
+
+        server.verify();
+        assertEquals(3, blockService.getHeight());
+        assertArrayEquals(remote.get(2).getHash(), blockService.getLastHash());
+        assertTrue(blockService.getByHash(local.get(1).getHash()).isEmpty());
+        assertTrue(transactionService.get(orphaned.getHash()).isPresent());
+    }
+
+    @Test
+    public void retrieveBlockchain_locatesTransactionsInBranch() throws Exception {
+        var local = mineChain("Local", 3);
+        local.forEach(x -> assertTrue(blockService.append(x)));
+        var moved = local.get(1).getTransactions().findFirst().orElseThrow();
+        var orphaned = local.get(2).getTransactions().findFirst().orElseThrow();
+        var remote = new ArrayList<>(mineChain(local.subList(0, 1), "Remote", 2));
+        // the Transaction of the replaced Block at height 1 is confirmed at another height and position in the branch
+        remote.add(mine(remote.get(2).getHash(), List.of(fixture.signTransaction("Remote 3"), moved), 8, 3 * 60000L));
+
+        var restTemplate = new RestTemplate(List.of(new BinaryHttpMessageConverter()));
+        var server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://remote/block/headers?from=3&limit=1000"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(3, 4))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=2&limit=1"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(2, 3))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=0&limit=1"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(0, 1))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=1&limit=1"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(1, 2))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=1&limit=1000"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(1, 4))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block?fromHeight=1&limit=3"))
+                .andRespond(withSuccess(toBody(remote.subList(1, 4)), BinaryHttpMessageConverter.MEDIA_TYPE));
+
+        blockService.retrieveBlockchain(new Node(new URL("http://remote")), restTemplate);
+
+        server.verify();
+        var mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        mockMvc.perform(get("/transaction/{hash}", Base64.getUrlEncoder().encodeToString(moved.getHash())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.confirmed").value(true))
+                .andExpect(jsonPath("$.blockHash").value(Base64.getEncoder().encodeToString(remote.get(3).getHash())))
+                .andExpect(jsonPath("$.height").value(3))
+                .andExpect(jsonPath("$.position").value(1));
+        mockMvc.perform(get("/transaction/{hash}", Base64.getUrlEncoder().encodeToString(orphaned.getHash())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.confirmed").value(false));
+    }
+
+    @Test
+    public void retrieveBlockchain_keepsChainWithMoreWork() throws Exception {
+        var local = mineChain("Local", 4);
+        local.forEach(x -> assertTrue(blockService.append(x)));
+        var remote = new ArrayList<>(mineChain(local.subList(0, 1), "Remote", 2));
+        var invalid = new Block(remote.get(2).getHash(), List.of(fixture.signTransaction("Not mined")), 8, 0, 3 * 60000L);
+        while (ProofOfWork.getLeadingZeroBits(invalid) >= 8) {
+            invalid = new Block(remote.get(2).getHash(), List.of(fixture.signTransaction("Not mined")), 8, invalid.getNonce() + 1, 3 * 60000L);
+        }
+        remote.add(invalid);
+        remote.add(mine(invalid.getHash(), List.of(fixture.signTransaction("Remote 4")), 8, 4 * 60000L));
+
+        var restTemplate = new RestTemplate(List.of(new BinaryHttpMessageConverter()));
+        var server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://remote/block/headers?from=4&limit=1000"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(4, 5))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=3&limit=1"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(3, 4))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=1&limit=1"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(1, 2))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        server.expect(requestTo("http://remote/block/headers?from=0&limit=1"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(0, 1))), BinaryHttpMessageConverter.MEDIA_TYPE));
+        // the branch ends with its last valid header, which leaves it with less work than the stored Blocks
+        server.expect(requestTo("http://remote/block/headers?from=1&limit=1000"))
+                .andRespond(withSuccess(toBody(headers(remote.subList(1, 5))), BinaryHttpMessageConverter.MEDIA_TYPE));
+
+        blockService.retrieveBlockchain(new Node(new URL("http://remote")), restTemplate);
+
+        server.verify();
+        assertEquals(4, blockService.getHeight());
+        assertArrayEquals(local.get(3).getHash(), blockService.getLastHash());
+    }
+
+    /**
+     * Load the stored chain into a new BlockService, as done on the next start
+     */
+    private BlockService restart() {
+        var restarted = new BlockService(transactionService, transactionVerifier, eventPublisher, clock, blockStore, indexStore, dataDirectory);
+        restarted.difficulty = blockService.difficulty;
+        restarted.retargetInterval = blockService.retargetInterval;
+        restarted.blockInterval = blockService.blockInterval;
+        restarted.maxClockDrift = blockService.maxClockDrift;
+        restarted.maxTransactionsPerBlock = blockService.maxTransactionsPerBlock;
+        restarted.load();
+        return restarted;
+    }
+
+    private List<Block> mineChain(String message, int count) throws Exception {
+        return mineChain(List.of(), message, count);
+    }
+
+    /**
+     * @param prefix Blocks to continue, they are part of the returned chain
+     */
+    private List<Block> mineChain(List<Block> prefix, String message, int count) throws Exception {
+        var blocks = new ArrayList<>(prefix);
+        var previousHash = prefix.isEmpty() ? null : prefix.get(prefix.size() - 1).getHash();
+        for (var i = prefix.size(); i < prefix.size() + count; i++) {
+            // exactly one block-interval apart, so retargeting keeps the difficulty
+            var block = mine(previousHash, List.of(fixture.signTransaction("%s %d".formatted(message, i))), 8, i * 60000L);
+            blocks.add(block);
+            previousHash = block.getHash();
+        }
+        return blocks;
+    }
+
+    private static List<BlockHeader> headers(List<Block> blocks) {
+        return blocks.stream().map(BlockHeader::of).toList();
+    }
+
+    private static byte[] toBody(List<?> elements) throws Exception {
+        var body = new MockHttpOutputMessage();
+        new BinaryHttpMessageConverter().write(elements, BinaryHttpMessageConverter.MEDIA_TYPE, body);
+        return body.getBodyAsBytes();
     }
 
     private List<Transaction> generateTransactions(int count) throws Exception {
         var transactions = new ArrayList<Transaction>();
         for (var i = 0; i < count; i++) {
-            var text = "Hello %d".formatted(i).getBytes(UTF_8);
-            var signature = Signatures.sign(text, privateKey);
-            var transaction = new Transaction(
-                    text,
-                    address.getHash(),
-                    signature,
-                    System.currentTimeMillis()
-            );
-
+            var transaction = fixture.signTransaction("Hello %d".formatted(i));
             transactionService.add(transaction);
             transactions.add(transaction);
         }
         return transactions;
     }
 
-    private Transaction generateStableTransaction() {
-        var transaction = new Transaction(
-                "Hello 0".getBytes(UTF_8),
-                address.getHash(),
-                fixedSignature,
-                42
-        );
-
+    private Transaction generateStableTransaction() throws Exception {
+        var transaction = fixture.signTransaction("Hello 0", 42);
         transactionService.add(transaction);
         return transaction;
     }
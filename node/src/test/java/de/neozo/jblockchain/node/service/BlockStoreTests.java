@@ -0,0 +1,140 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockStoreTests {
+
+    @TempDir
+    Path directory;
+
+    private BlockStore blockStore;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        blockStore.close();
+    }
+
+    @Test
+    public void append_reopen() throws IOException {
+        blockStore = open(1024);
+        var blocks = generateBlocks(20);
+        blocks.forEach(blockStore::append);
+        blockStore.close();
+
+        blockStore = open(1024);
+        assertEquals(blocks.size(), blockStore.size());
+        for (var i = 0; i < blocks.size(); i++) {
+            assertArrayEquals(blocks.get(i).getHash(), blockStore.get(i).getHash());
+        }
+        try (var files = Files.list(directory.resolve("blocks"))) {
+            assertTrue(files.count() > 1);
+        }
+    }
+
+    @Test
+    public void open_truncatesTornRecord() throws IOException {
+        blockStore = open(1 << 20);
+        var blocks = generateBlocks(3);
+        blocks.forEach(blockStore::append);
+        blockStore.close();
+
+        try (var files = Files.list(directory.resolve("blocks"));
+             var channel = FileChannel.open(files.findFirst().orElseThrow(), WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        blockStore = open(1 << 20);
+        assertEquals(2, blockStore.size());
+        blockStore.append(blocks.get(2));
+        assertArrayEquals(blocks.get(2).getHash(), blockStore.get(2).getHash());
+    }
+
+    @Test
+    public void truncate() throws IOException {
+        blockStore = open(1024);
+        var blocks = generateBlocks(20);
+        blocks.forEach(blockStore::append);
+
+        blockStore.truncate(7);
+        assertEquals(7, blockStore.size());
+        blockStore.append(blocks.get(7));
+        blockStore.close();
+
+        blockStore = open(1024);
+        assertEquals(8, blockStore.size());
+        assertArrayEquals(blocks.get(7).getHash(), blockStore.get(7).getHash());
+    }
+
+    @Test
+    public void get_whileTruncating() throws Exception {
+        blockStore = open(1 << 20);
+        var blocks = generateBlocks(50);
+        blocks.forEach(blockStore::append);
+
+        // readers decode while the last segment shrinks and grows again
+        var running = new AtomicBoolean(true);
+        var readers = Executors.newFixedThreadPool(4);
+        var results = new ArrayList<Future<Long>>();
+        for (var i = 0; i < 4; i++) {
+            results.add(readers.submit(() -> {
+                var reads = 0L;
+                for (var height = 0L; running.get(); height = (height + 7) % blocks.size()) {
+                    try {
+                        assertArrayEquals(blocks.get((int) height).getHash(), blockStore.get(height).getHash());
+                        reads++;
+                    } catch (IndexOutOfBoundsException truncated) {
+                    }
+                }
+                return reads;
+            }));
+        }
+        for (var round = 0; round < 200; round++) {
+            blockStore.truncate(10);
+            blocks.subList(10, blocks.size()).forEach(blockStore::append);
+        }
+        running.set(false);
+        for (var result : results) assertTrue(result.get() > 0);
+        readers.shutdown();
+    }
+
+    private BlockStore open(long segmentSize) throws IOException {
+        var store = new BlockStore(new DataDirectory(directory));
+        store.segmentSize = segmentSize;
+        store.syncInterval = 1000;
+        store.open();
+        return store;
+    }
+
+    private static List<Block> generateBlocks(int count) {
+        var blocks = new ArrayList<Block>();
+        byte[] previousHash = null;
+        for (var i = 0; i < count; i++) {
+            var transaction = new Transaction(("Block " + i).getBytes(UTF_8), new byte[32], new byte[64], i);
+            var block = new Block(previousHash, List.of(transaction), 8, i, i);
+            blocks.add(block);
+            previousHash = block.getHash();
+        }
+        return blocks;
+    }
+}
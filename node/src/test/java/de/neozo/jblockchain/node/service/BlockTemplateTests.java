@@ -0,0 +1,60 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Block;
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static de.neozo.jblockchain.common.Bytes.toByteArray;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockTemplateTests {
+
+    @Test
+    public void add_fillsSlotsThenQueuesCandidates() {
+        var transactions = transactions(5);
+        var template = new BlockTemplate(3);
+
+        assertTrue(template.add(transactions.get(0)));
+        assertTrue(template.add(transactions.get(1)));
+        assertTrue(template.add(transactions.get(2)));
+        assertFalse(template.add(transactions.get(3)));
+        assertFalse(template.add(transactions.get(1)));
+
+        var snapshot = template.snapshot();
+        assertEquals(transactions.subList(0, 3), snapshot.transactions());
+        assertArrayEquals(Block.calculateMerkleRoot(snapshot.transactions()), snapshot.merkleRoot());
+    }
+
+    @Test
+    public void remove_refillsSlotWithOldestCandidate() {
+        var transactions = transactions(5);
+        var template = new BlockTemplate(3);
+        transactions.forEach(template::add);
+
+        assertFalse(template.remove(transactions.get(4)));
+        assertTrue(template.remove(transactions.get(1)));
+        var snapshot = template.snapshot();
+        assertEquals(List.of(transactions.get(0), transactions.get(3), transactions.get(2)), snapshot.transactions());
+        assertArrayEquals(Block.calculateMerkleRoot(snapshot.transactions()), snapshot.merkleRoot());
+
+        assertTrue(template.remove(transactions.get(0)));
+        snapshot = template.snapshot();
+        assertEquals(List.of(transactions.get(2), transactions.get(3)), snapshot.transactions());
+        assertArrayEquals(Block.calculateMerkleRoot(snapshot.transactions()), snapshot.merkleRoot());
+
+        template.remove(transactions.get(2));
+        template.remove(transactions.get(3));
+        assertTrue(template.isEmpty());
+    }
+
+    private static List<Transaction> transactions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Transaction(toByteArray(i), new byte[32], new byte[0], i))
+                .collect(toList());
+    }
+}
@@ -0,0 +1,46 @@
+package de.neozo.jblockchain.node.service;
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedCacheTests {
+
+    @Test
+    public void put_evictsEldestFirst() {
+        var cache = new BoundedCache<Integer, String>(3);
+        for (var i = 0; i < 5; i++) cache.put(i, Integer.toString(i));
+
+        assertFalse(cache.contains(0));
+        assertFalse(cache.contains(1));
+        for (var i = 2; i < 5; i++) assertEquals(Integer.toString(i), cache.get(i));
+    }
+
+    @Test
+    public void put_existingKeyKeepsOrder() {
+        var cache = new BoundedCache<Integer, String>(2);
+        cache.put(0, "0");
+        cache.put(1, "1");
+        cache.put(0, "zero");
+        cache.put(2, "2");
+
+        // replacing a value does not make it younger
+        assertFalse(cache.contains(0));
+        assertEquals("1", cache.get(1));
+        assertEquals("2", cache.get(2));
+    }
+
+    @Test
+    public void put_neverExceedsCapacity() {
+        var cache = new BoundedCache<Integer, Integer>(100);
+        for (var i = 0; i < 10_000; i++) cache.put(i, i);
+
+        var size = 0;
+        for (var i = 0; i < 10_000; i++) if (cache.contains(i)) size++;
+        assertEquals(100, size);
+        assertTrue(cache.contains(9_999));
+    }
+}
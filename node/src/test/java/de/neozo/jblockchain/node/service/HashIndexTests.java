@@ -0,0 +1,79 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.Hashes;
+import org.junit.jupiter.api.Test;
+
+import static de.neozo.jblockchain.common.Bytes.toByteArray;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HashIndexTests {
+
+    @Test
+    public void find_afterGrowing() {
+        var index = new HashIndex();
+        for (var i = 0; i < 5000; i++) index.add(Hashes.digest(toByteArray(i)));
+
+        for (var i = 0; i < 5000; i++) {
+            assertEquals(i, index.find(Hashes.digest(toByteArray(i))));
+        }
+        assertArrayEquals(Hashes.digest(toByteArray(42)), index.getHash(42));
+        assertEquals(-1, index.find(Hashes.digest(toByteArray(5000))));
+    }
+
+    @Test
+    public void find_samePrefix() {
+        var index = new HashIndex();
+        var first = new byte[32];
+        var second = new byte[32];
+        second[31] = 1;
+        index.add(first);
+        index.add(second);
+
+        assertEquals(0, index.find(first));
+        assertEquals(1, index.find(second));
+    }
+
+    @Test
+    public void truncate() {
+        var index = new HashIndex();
+        for (var i = 0; i < 10; i++) index.add(Hashes.digest(toByteArray(i)));
+        index.truncate(4);
+
+        assertEquals(4, index.size());
+        assertEquals(3, index.find(Hashes.digest(toByteArray(3))));
+        assertEquals(-1, index.find(Hashes.digest(toByteArray(4))));
+    }
+
+    @Test
+    public void truncate_keepsProbeSequences() {
+        var index = new HashIndex();
+        var count = 5000;
+        for (var i = 0; i < count; i++) index.add(Hashes.digest(toByteArray(i)));
+        index.truncate(1000);
+        for (var i = 1000; i < 1500; i++) index.add(Hashes.digest(toByteArray(-i)));
+
+        // every colliding hash is still reachable, removed ones are gone
+        for (var i = 0; i < 1000; i++) assertEquals(i, index.find(Hashes.digest(toByteArray(i))));
+        for (var i = 1000; i < 1500; i++) assertEquals(i, index.find(Hashes.digest(toByteArray(-i))));
+        for (var i = 1000; i < count; i++) assertEquals(-1, index.find(Hashes.digest(toByteArray(i))));
+    }
+
+    @Test
+    public void find_acrossSegments() {
+        var index = new HashIndex();
+        var count = (1 << 17) + 3;
+        for (var i = 0; i < count; i++) index.add(Hashes.digest(toByteArray(i)));
+
+        for (var i : new int[]{0, (1 << 16) - 1, 1 << 16, count - 1}) {
+            assertEquals(i, index.find(Hashes.digest(toByteArray(i))));
+            assertArrayEquals(Hashes.digest(toByteArray(i)), index.getHash(i));
+        }
+
+        index.truncate((1 << 16) - 1);
+        index.add(Hashes.digest(toByteArray(-1)));
+        assertEquals((1 << 16) - 1, index.find(Hashes.digest(toByteArray(-1))));
+        assertEquals(-1, index.find(Hashes.digest(toByteArray(1 << 16))));
+    }
+}
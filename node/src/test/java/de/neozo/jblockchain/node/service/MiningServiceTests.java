@@ -1,19 +1,40 @@
 package de.neozo.jblockchain.node.service;
 
 
-import de.neozo.jblockchain.common.Signatures;
-import de.neozo.jblockchain.common.domain.Address;
+import de.neozo.jblockchain.common.BlockHeaderHasher;
+import de.neozo.jblockchain.common.Hashes;
+import de.neozo.jblockchain.common.domain.Block;
 import de.neozo.jblockchain.common.domain.Transaction;
+import de.neozo.jblockchain.node.ChainFixture;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.annotation.DirtiesContext;
 
-import java.nio.charset.StandardCharsets;
-import java.security.KeyPair;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
-@SpringBootTest
+import static de.neozo.jblockchain.node.service.ProofOfWork.getLeadingZeroBits;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@SpringBootTest(properties = {"difficulty=8", "mining-threads=2", "data-directory=target/data/${random.uuid}"})
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
 public class MiningServiceTests {
 
     @Autowired
@@ -22,45 +43,108 @@ public class MiningServiceTests {
     private TransactionService transactionService;
     @Autowired
     private AddressService addressService;
+    @Autowired
+    private BlockService blockService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private Tips tips;
 
-    private Address address;
-    private KeyPair keyPair;
+    private ChainFixture fixture;
+    private ExecutorService workers;
 
     @BeforeEach
     public void setUp() throws Exception {
-        keyPair = Signatures.generateKeyPair();
-        address = new Address("Max Mustermann", keyPair.getPublic().getEncoded());
-        addressService.add(address);
+        fixture = ChainFixture.generate();
+        addressService.add(fixture.getAddress());
+        workers = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        miningService.stopMiner();
+        workers.shutdownNow();
     }
 
-    @Disabled
     @Test
-    public void startStopMiner() throws Exception {
-        final var initialTransactions = 100;
-        addTransactions(initialTransactions);
+    public void search_partitionsNonces() {
+        var hasher = new BlockHeaderHasher(null, new byte[Hashes.LENGTH], 8, 0);
+        var first = MiningService.search(hasher, 8, 0, 1, () -> false);
+        var even = MiningService.search(hasher, 8, 0, 2, () -> false);
+        var odd = MiningService.search(hasher, 8, 1, 2, () -> false);
 
+        assertEquals(0, even % 2);
+        assertEquals(1, odd % 2);
+        assertEquals(first, Math.min(even, odd));
+        // neither worker skipped a matching nonce of its share
+        for (var nonce = 0L; nonce < Math.max(even, odd); nonce++) {
+            if (nonce < (nonce % 2 == 0 ? even : odd)) assertTrue(getLeadingZeroBits(hasher.hash(nonce)) < 8);
+        }
+    }
+
+    @Test
+    public void mine_searchesWithAllWorkers() throws Exception {
+        // the pool stays empty, so the miner thread only waits while the test mines rounds itself
         miningService.startMiner();
+        var tasks = new AtomicInteger();
 
-        while (transactionService.getTransactionPool().count() == initialTransactions) {
-            Thread.sleep(1000);
-        }
+        var block = miningService.mine(snapshot(fixture.signTransaction("Mined")), runnable -> {
+            tasks.incrementAndGet();
+            workers.execute(runnable);
+        }).orElseThrow();
 
-        miningService.stopMiner();
+        assertEquals(2, tasks.get());
+        assertTrue(blockService.append(block));
     }
 
-    private void addTransactions(int count) throws Exception {
-        for (var i = 0; i < count; i++) {
-            var text = "Demo Transaction %d".formatted(i);
-            var signature = Signatures.sign(text.getBytes(), keyPair.getPrivate().getEncoded());
-            var transaction = new Transaction(
-                    text.getBytes(StandardCharsets.UTF_8),
-                    address.getHash(),
-                    signature,
-                    System.currentTimeMillis()
-            );
-
-            transactionService.add(transaction);
-        }
+    @Test
+    public void mine_givesUpRoundWhenTipChanges() throws Exception {
+        miningService.startMiner();
+        // no worker finds 64 leading zero bits, the round only ends when the tip changes
+        blockService.difficulty = 64;
+        var snapshot = snapshot(fixture.signTransaction("Stale"));
+        var started = new CountDownLatch(2);
+        var round = CompletableFuture.supplyAsync(() -> miningService.mine(snapshot, runnable -> workers.execute(() -> {
+            started.countDown();
+            runnable.run();
+        })));
+        assertTrue(started.await(10, SECONDS));
+
+        blockService.difficulty = 8;
+        assertTrue(blockService.append(ChainFixture.mine(null, List.of(fixture.signTransaction("Tip")), 8, System.currentTimeMillis())));
+
+        assertTrue(round.get(10, SECONDS).isEmpty());
+        assertEquals(1, meterRegistry.timer("miner.stale.work").count());
+    }
+
+    @Test
+    public void startMiner_wakesUpForAddedTransaction() throws Exception {
+        miningService.startMiner();
+        var transaction = fixture.signTransaction("Wakeup");
+        assertTrue(transactionService.add(transaction));
+
+        var tip = tips.queue.poll(10, SECONDS);
+        assertNotNull(tip);
+        assertArrayEquals(transaction.getHash(), tip.getTransactions().findFirst().orElseThrow().getHash());
+    }
+
+    private BlockTemplate.Snapshot snapshot(Transaction transaction) {
+        var template = new BlockTemplate(1);
+        template.add(transaction);
+        return template.snapshot();
     }
 
+    /**
+     * Collects every new tip, so tests wait for mined Blocks instead of polling the chain
+     */
+    @TestConfiguration
+    static class Tips {
+
+        private final BlockingQueue<Block> queue = new LinkedBlockingQueue<>();
+
+        @EventListener
+        public void onTipChanged(TipChangedEvent event) {
+            queue.add(event.tip());
+        }
+    }
 }
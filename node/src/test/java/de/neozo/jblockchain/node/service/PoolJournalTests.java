@@ -0,0 +1,101 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.common.domain.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PoolJournalTests {
+
+    @TempDir
+    Path directory;
+
+    private PoolJournal poolJournal;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        poolJournal.close();
+    }
+
+    @Test
+    public void add_remove_reopen() throws Exception {
+        poolJournal = open(1000);
+        var transactions = generateTransactions(10);
+        CompletableFuture.allOf(transactions.stream().map(x -> poolJournal.add(x, true)).toArray(CompletableFuture[]::new)).join();
+        poolJournal.add(transactions.get(0), false).join();
+        poolJournal.remove(transactions.get(3)).join();
+        poolJournal.close();
+
+        poolJournal = open(1000);
+        var entries = poolJournal.getEntries();
+        assertEquals(9, entries.size());
+        assertFalse(entries.stream().anyMatch(x -> x.transaction().equals(transactions.get(3))));
+        assertFalse(entries.stream().filter(x -> x.transaction().equals(transactions.get(0))).findFirst().orElseThrow().verified());
+        assertTrue(entries.stream().filter(x -> x.transaction().equals(transactions.get(1))).findFirst().orElseThrow().verified());
+    }
+
+    @Test
+    public void open_truncatesTornRecord() throws Exception {
+        poolJournal = open(1000);
+        var transactions = generateTransactions(3);
+        transactions.forEach(x -> poolJournal.add(x, true).join());
+        poolJournal.close();
+
+        try (var channel = FileChannel.open(directory.resolve("pool").resolve("pool.journal"), WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        poolJournal = open(1000);
+        assertEquals(2, poolJournal.getEntries().size());
+        poolJournal.add(transactions.get(2), true).join();
+        poolJournal.close();
+
+        poolJournal = open(1000);
+        assertEquals(3, poolJournal.getEntries().size());
+    }
+
+    @Test
+    public void compact() throws Exception {
+        poolJournal = open(10);
+        var transactions = generateTransactions(20);
+        for (var transaction : transactions) {
+            poolJournal.add(transaction, true).join();
+            if (!transaction.equals(transactions.get(19))) poolJournal.remove(transaction).join();
+        }
+        var file = directory.resolve("pool").resolve("pool.journal");
+        var compacted = Files.size(file);
+        poolJournal.close();
+
+        poolJournal = open(10);
+        assertEquals(List.of(transactions.get(19)), poolJournal.getEntries().stream().map(PoolJournal.Entry::transaction).collect(toList()));
+        assertTrue(compacted < 20 * 2 * 50);
+    }
+
+    private PoolJournal open(int compactionThreshold) throws Exception {
+        var journal = new PoolJournal(new DataDirectory(directory));
+        journal.compactionThreshold = compactionThreshold;
+        journal.open();
+        return journal;
+    }
+
+    private static List<Transaction> generateTransactions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Transaction(("Hello " + i).getBytes(UTF_8), new byte[32], new byte[64], i))
+                .collect(toList());
+    }
+}
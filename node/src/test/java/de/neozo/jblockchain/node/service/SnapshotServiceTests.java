@@ -0,0 +1,42 @@
+package de.neozo.jblockchain.node.service;
+
+
+import de.neozo.jblockchain.node.ChainFixture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"data-directory=target/data/${random.uuid}", "snapshot-interval=0"})
+@DirtiesContext
+public class SnapshotServiceTests {
+
+    @Autowired
+    private SnapshotService snapshotService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private AddressService addressService;
+
+    @Test
+    public void write_restore() throws Exception {
+        assertFalse(snapshotService.restore());
+
+        var fixture = ChainFixture.generate();
+        addressService.add(fixture.getAddress());
+        var transaction = fixture.signTransaction("Snapshot");
+        assertTrue(transactionService.add(transaction));
+
+        snapshotService.write();
+        transactionService.remove(transaction);
+
+        // the pool is restored from the pool journal only
+        assertTrue(snapshotService.restore());
+        assertTrue(transactionService.get(transaction.getHash()).isEmpty());
+        assertNotNull(addressService.getByHash(fixture.getAddress().getHash()));
+    }
+}
@@ -1,6 +1,7 @@
 package de.neozo.jblockchain.node.service;
 
 
+import de.neozo.jblockchain.common.HeaderEncoder;
 import de.neozo.jblockchain.common.Signatures;
 import de.neozo.jblockchain.common.domain.Address;
 import de.neozo.jblockchain.common.domain.Transaction;
@@ -12,11 +13,16 @@ import org.springframework.test.annotation.DirtiesContext;
 
 import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SpringBootTest
+@SpringBootTest(properties = "data-directory=target/data/${random.uuid}")
 @DirtiesContext
 public class TransactionServiceTests {
 
@@ -49,6 +55,130 @@ public class TransactionServiceTests {
         assertTrue(transactionService.add(transaction));
     }
 
+    @Test
+    public void addTransaction_validEd25519() throws Exception {
+        var edKeyPair = Signatures.ED25519.generateKeyPair();
+        var edAddress = new Address("Erika Mustermann", edKeyPair.getPublic().getEncoded(), Signatures.ED25519.getName());
+        addressService.add(edAddress);
+
+        var text = "Lorem Ipsum".getBytes(StandardCharsets.UTF_8);
+        var transaction = new Transaction(
+                text,
+                edAddress.getHash(),
+                Signatures.ED25519.sign(text, edKeyPair.getPrivate()),
+                System.currentTimeMillis()
+        );
+
+        assertTrue(transactionService.add(transaction));
+    }
+
+    @Test
+    public void addTransaction_invalidScheme() throws Exception {
+        var rsaKeyPair = Signatures.generateKeyPair();
+        var rsaAsEd25519 = new Address("Erika Mustermann", rsaKeyPair.getPublic().getEncoded(), Signatures.ED25519.getName());
+        var rsa = new Address("Erika Mustermann", rsaKeyPair.getPublic().getEncoded());
+        assertFalse(Arrays.equals(rsa.getHash(), rsaAsEd25519.getHash()));
+        assertFalse(addressService.add(rsaAsEd25519));
+
+        var text = "Lorem Ipsum";
+        var transaction = new Transaction(
+                text.getBytes(StandardCharsets.UTF_8),
+                rsaAsEd25519.getHash(),
+                Signatures.sign(text.getBytes(), rsaKeyPair.getPrivate().getEncoded()),
+                System.currentTimeMillis()
+        );
+
+        assertFalse(transactionService.add(transaction));
+    }
+
+    @Test
+    public void addTransaction_invalidLegacyVersion() throws Exception {
+        var text = "Lorem Ipsum".getBytes(StandardCharsets.UTF_8);
+        var transaction = new Transaction(
+                HeaderEncoder.LEGACY_VERSION,
+                text,
+                address.getHash(),
+                Signatures.sign(text, keyPair.getPrivate().getEncoded()),
+                System.currentTimeMillis()
+        );
+
+        assertFalse(transactionService.add(transaction));
+    }
+
+    @Test
+    public void removeConfirmed() throws Exception {
+        var text = "Mined before shutdown".getBytes(StandardCharsets.UTF_8);
+        var confirmed = new Transaction(text, address.getHash(), Signatures.sign(text, keyPair.getPrivate().getEncoded()), System.currentTimeMillis());
+        text = "Still pending".getBytes(StandardCharsets.UTF_8);
+        var pending = new Transaction(text, address.getHash(), Signatures.sign(text, keyPair.getPrivate().getEncoded()), System.currentTimeMillis());
+        assertTrue(transactionService.add(confirmed));
+        assertTrue(transactionService.add(pending));
+
+        transactionService.removeConfirmed(hash -> Arrays.equals(hash, confirmed.getHash()));
+
+        assertTrue(transactionService.get(confirmed.getHash()).isEmpty());
+        assertTrue(transactionService.get(pending.getHash()).isPresent());
+    }
+
+    @Test
+    public void getTransactionPoolInOrder() throws Exception {
+        var transactions = new ArrayList<Transaction>();
+        for (var i = 0; i < 5; i++) {
+            var text = "Ordered %d".formatted(i).getBytes(StandardCharsets.UTF_8);
+            // dated back, so the order of addition is not the timestamp order
+            var transaction = new Transaction(text, address.getHash(), Signatures.sign(text, keyPair.getPrivate().getEncoded()), 1000 - i);
+            assertTrue(transactionService.add(transaction));
+            transactions.add(transaction);
+        }
+
+        var ordered = transactionService.getTransactionPoolInOrder()
+                .filter(x -> new String(x.getPayload(), StandardCharsets.UTF_8).startsWith("Ordered "))
+                .toList();
+        assertEquals(transactions, ordered);
+    }
+
+    @Test
+    public void addTransaction_concurrent() throws Exception {
+        var results = new ArrayList<CompletableFuture<Boolean>>();
+        for (var i = 0; i < 100; i++) {
+            var text = "Lorem Ipsum %d".formatted(i);
+            var signature = Signatures.sign(text.getBytes(), keyPair.getPrivate().getEncoded());
+            var transaction = new Transaction(
+                    text.getBytes(StandardCharsets.UTF_8),
+                    address.getHash(),
+                    signature,
+                    System.currentTimeMillis()
+            );
+            results.add(transactionService.addAsync(transaction));
+        }
+
+        for (var result : results) {
+            assertTrue(result.get());
+        }
+        assertEquals(100, transactionService.getTransactionPool().filter(x -> new String(x.getPayload()).startsWith("Lorem Ipsum ")).count());
+    }
+
+    @Test
+    public void addTransactions_batch() throws Exception {
+        var transactions = new ArrayList<Transaction>();
+        for (var i = 0; i < 3; i++) {
+            var text = "Batch %d".formatted(i);
+            var signature = Signatures.sign(text.getBytes(), keyPair.getPrivate().getEncoded());
+            transactions.add(new Transaction(
+                    // the second Transaction does not match its signature
+                    (i == 1 ? "Fake text!!!" : text).getBytes(StandardCharsets.UTF_8),
+                    address.getHash(),
+                    signature,
+                    System.currentTimeMillis()
+            ));
+        }
+
+        assertEquals(List.of(true, false, true), transactionService.addAllAsync(transactions).get());
+        assertTrue(transactionService.get(transactions.get(0).getHash()).isPresent());
+        assertFalse(transactionService.get(transactions.get(1).getHash()).isPresent());
+        assertTrue(transactionService.get(transactions.get(2).getHash()).isPresent());
+    }
+
     @Test
     public void addTransaction_invalidText() throws Exception {
         var text = "Lorem Ipsum";